@@ -0,0 +1,119 @@
+package caltax.batch;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.Iterator;
+
+import caltax.model.ColumnarBasket;
+import caltax.model.Money;
+import caltax.model.TaxCategory;
+
+/**
+ * Streams baskets from tab-separated lines:
+ *
+ * <pre>
+ * basketId  name  price  category  imported
+ * 1         book  12.49  BOOK      N
+ * </pre>
+ *
+ * Lines of one basket must be consecutive. Blank lines and lines starting with '#'
+ * are skipped. Only one basket is held in memory at a time.
+ */
+public class BasketReader {
+    private final BufferedReader in;
+    private final Iterator<String> lines;
+    private String[] pending;
+    private long lineNo;
+
+    public BasketReader(BufferedReader in) {
+        this.in = in;
+        this.lines = null;
+    }
+
+    /** Reads lines already split off the input, e.g. one chunk handed to a worker. */
+    public BasketReader(Iterator<String> lines, long firstLineNo) {
+        this.in = null;
+        this.lines = lines;
+        this.lineNo = firstLineNo - 1;
+    }
+
+    /** The basket id of a raw input line, without parsing the rest. */
+    public static String basketId(String line) {
+        int tab = line.indexOf('\t');
+        return tab < 0 ? line : line.substring(0, tab);
+    }
+
+    public static boolean isSkipped(String line) {
+        return line.isEmpty() || line.charAt(0) == '#';
+    }
+
+    public static class Basket {
+        private final String id;
+        private final ColumnarBasket lines;
+
+        Basket(String id, ColumnarBasket lines) {
+            this.id = id;
+            this.lines = lines;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public ColumnarBasket getLines() {
+            return lines;
+        }
+    }
+
+    /** The next basket, or null at end of input. */
+    public Basket next() throws IOException {
+        String[] first = pending != null ? pending : readFields();
+        pending = null;
+        if (first == null) {
+            return null;
+        }
+        ColumnarBasket lines = new ColumnarBasket(8);
+        addLine(lines, first);
+        String[] fields;
+        while ((fields = readFields()) != null) {
+            if (!fields[0].equals(first[0])) {
+                pending = fields;
+                break;
+            }
+            addLine(lines, fields);
+        }
+        return new Basket(first[0], lines);
+    }
+
+    private String[] readFields() throws IOException {
+        String line;
+        while ((line = readLine()) != null) {
+            lineNo++;
+            if (isSkipped(line)) {
+                continue;
+            }
+            String[] fields = line.split("\t");
+            if (fields.length != 5) {
+                throw new IOException("line " + lineNo + ": expected 5 tab-separated fields, got " + fields.length);
+            }
+            return fields;
+        }
+        return null;
+    }
+
+    private String readLine() throws IOException {
+        if (in != null) {
+            return in.readLine();
+        }
+        return lines.hasNext() ? lines.next() : null;
+    }
+
+    private void addLine(ColumnarBasket lines, String[] fields) throws IOException {
+        try {
+            lines.add(fields[1], Money.toCents(Double.parseDouble(fields[2])), TaxCategory.valueOf(fields[3]),
+                    fields[4].equals("Y"));
+        } catch (IllegalArgumentException e) {
+            throw new IOException("line " + lineNo + ": " + e.getMessage(), e);
+        }
+    }
+}
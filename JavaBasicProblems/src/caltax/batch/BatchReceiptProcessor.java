@@ -0,0 +1,155 @@
+package caltax.batch;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import caltax.model.Receipt;
+import caltax.model.ReceiptRenderer;
+
+/**
+ * Re-taxes a file of baskets (see {@link BasketReader} for the format) and writes
+ * their receipts in input order.
+ *
+ * The calling thread only cuts the input into chunks of raw lines at basket
+ * boundaries and hands each chunk to a fixed pool of one worker per core, which
+ * parses the baskets, computes the receipts and renders the whole chunk into one
+ * byte array through its own {@link ReceiptRenderer}. Finished chunks are written
+ * in order through a single buffered stream. At most two chunks per worker are
+ * in flight, so memory stays flat on any input size.
+ *
+ * Usage: BatchReceiptProcessor &lt;baskets.tsv&gt; &lt;receipts.txt&gt; [threads]
+ */
+public class BatchReceiptProcessor {
+    private static final int CHUNK_SIZE = 1024;
+    private static final int WRITE_BUFFER = 1 << 16;
+    private static final ThreadLocal<ChunkRenderer> RENDERERS = ThreadLocal.withInitial(ChunkRenderer::new);
+
+    private final int threads;
+
+    public BatchReceiptProcessor(int threads) {
+        this.threads = threads;
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.err.println("usage: BatchReceiptProcessor <baskets.tsv> <receipts.txt> [threads]");
+            System.exit(2);
+        }
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        try (BufferedReader in = Files.newBufferedReader(Paths.get(args[0]), StandardCharsets.UTF_8);
+             OutputStream out = new BufferedOutputStream(Files.newOutputStream(Paths.get(args[1])), WRITE_BUFFER)) {
+            long start = System.nanoTime();
+            long baskets = new BatchReceiptProcessor(threads).process(in, out);
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.err.printf("%d baskets in %.2f s on %d threads, %.0f baskets/sec%n",
+                    baskets, seconds, threads, baskets / seconds);
+        }
+    }
+
+    /** Returns the number of baskets processed. */
+    public long process(BufferedReader in, OutputStream out) throws IOException {
+        ExecutorService workers = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "caltax-batch");
+            t.setDaemon(true);
+            return t;
+        });
+        BlockingQueue<Future<byte[]>> inFlight = new ArrayBlockingQueue<>(threads * 2);
+        long count = 0;
+        long lineNo = 0;
+        try {
+            List<String> chunk = new ArrayList<>(CHUNK_SIZE * 4);
+            long chunkStart = 1;
+            int basketsInChunk = 0;
+            String currentId = null;
+            String line;
+            while ((line = in.readLine()) != null) {
+                lineNo++;
+                if (BasketReader.isSkipped(line)) {
+                    // kept so the worker's line numbers stay right
+                    chunk.add(line);
+                    continue;
+                }
+                String id = BasketReader.basketId(line);
+                if (!id.equals(currentId)) {
+                    if (basketsInChunk == CHUNK_SIZE) {
+                        submit(workers, inFlight, chunk, chunkStart, out);
+                        chunk = new ArrayList<>(CHUNK_SIZE * 4);
+                        chunkStart = lineNo;
+                        basketsInChunk = 0;
+                    }
+                    currentId = id;
+                    basketsInChunk++;
+                    count++;
+                }
+                chunk.add(line);
+            }
+            if (!chunk.isEmpty()) {
+                submit(workers, inFlight, chunk, chunkStart, out);
+            }
+            while (!inFlight.isEmpty()) {
+                out.write(await(inFlight.poll()));
+            }
+            out.flush();
+        } finally {
+            workers.shutdownNow();
+        }
+        return count;
+    }
+
+    private static void submit(ExecutorService workers, BlockingQueue<Future<byte[]>> inFlight,
+                               List<String> chunk, long firstLineNo, OutputStream out) throws IOException {
+        // full: write the oldest chunk first, which keeps the output in input order
+        if (inFlight.remainingCapacity() == 0) {
+            out.write(await(inFlight.poll()));
+        }
+        inFlight.add(workers.submit(() -> render(new BasketReader(chunk.iterator(), firstLineNo))));
+    }
+
+    static byte[] render(BasketReader baskets) throws IOException {
+        ChunkRenderer chunk = RENDERERS.get();
+        chunk.bytes.reset();
+        BasketReader.Basket basket;
+        while ((basket = baskets.next()) != null) {
+            chunk.renderer.text("Output ");
+            chunk.renderer.text(basket.getId());
+            chunk.renderer.text(":");
+            chunk.renderer.newline();
+            chunk.renderer.render(new Receipt(basket.getLines()));
+            chunk.renderer.newline();
+        }
+        chunk.renderer.flush();
+        return chunk.bytes.toByteArray();
+    }
+
+    // One renderer and output buffer per worker, reused for every chunk it renders.
+    private static final class ChunkRenderer {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream(CHUNK_SIZE * 256);
+        final ReceiptRenderer renderer = new ReceiptRenderer(Channels.newChannel(bytes), WRITE_BUFFER, "\n");
+    }
+
+    private static byte[] await(Future<byte[]> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for receipts", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Computing receipts failed", e.getCause());
+        }
+    }
+}
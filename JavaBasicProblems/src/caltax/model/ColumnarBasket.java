@@ -0,0 +1,140 @@
+package caltax.model;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A basket stored column by column: prices in a long[] of cents, one flags byte per
+ * line and name ids into a side dictionary, so the tax loop walks flat primitive
+ * arrays instead of chasing one object per line.
+ *
+ * The flags byte is (category ordinal &lt;&lt; 1) | imported, which is exactly the
+ * offset of the line's rate within a jurisdiction's slice of {@link TaxRateTable}.
+ */
+public final class ColumnarBasket {
+    private long[] priceCents;
+    private byte[] flags;
+    private int[] nameIds;
+    private int size;
+    // Negative prices (refund or discount lines) need the sign-aware round-up.
+    private boolean hasNegativePrices;
+    private String[] names = new String[16];
+    private int nameCount;
+    private final Map<String, Integer> nameIndex = new HashMap<>();
+
+    public ColumnarBasket() {
+        this(16);
+    }
+
+    public ColumnarBasket(int capacity) {
+        capacity = Math.max(1, capacity);
+        priceCents = new long[capacity];
+        flags = new byte[capacity];
+        nameIds = new int[capacity];
+    }
+
+    public static ColumnarBasket of(List<Product> products) {
+        ColumnarBasket basket = new ColumnarBasket(products.size());
+        for (Product p : products) {
+            basket.add(p.getName(), p.getPriceCents(), p.getCategory(), p.isImported());
+        }
+        return basket;
+    }
+
+    /** Appends a line and returns its index. */
+    public int add(String name, long priceCents, TaxCategory category, boolean imported) {
+        if (size == this.priceCents.length) {
+            int capacity = size * 2;
+            this.priceCents = Arrays.copyOf(this.priceCents, capacity);
+            flags = Arrays.copyOf(flags, capacity);
+            nameIds = Arrays.copyOf(nameIds, capacity);
+        }
+        this.priceCents[size] = priceCents;
+        hasNegativePrices |= priceCents < 0;
+        flags[size] = (byte) ((category.ordinal() << 1) | (imported ? 1 : 0));
+        nameIds[size] = nameId(name);
+        return size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long getPriceCents(int line) {
+        return priceCents[line];
+    }
+
+    public String getName(int line) {
+        return names[nameIds[line]];
+    }
+
+    public TaxCategory getCategory(int line) {
+        return TaxCategory.VALUES[flags[line] >> 1];
+    }
+
+    public boolean isImported(int line) {
+        return (flags[line] & 1) != 0;
+    }
+
+    public Product toProduct(int line) {
+        return Product.ofCents(getName(line), priceCents[line], getCategory(line), isImported(line));
+    }
+
+    /**
+     * Writes each line's tax into taxOut[0..size). The rate is one load from the
+     * jurisdiction's slice of the table; the round-up to 0.05 is branch-free while
+     * no price is negative. A basket with a negative price rounds through
+     * {@link Money#tax}, which rounds toward zero for negative amounts as Product does.
+     */
+    void computeTaxes(TaxRateTable rates, int jurisdiction, long[] taxOut) {
+        int[] table = rates.rates();
+        int base = rates.offset(jurisdiction);
+        if (hasNegativePrices) {
+            for (int i = 0; i < size; i++) {
+                taxOut[i] = Money.tax(priceCents[i], table[base + flags[i]]);
+            }
+            return;
+        }
+        long[] prices = priceCents;
+        byte[] f = flags;
+        long nickel = Money.BASIS_POINTS * 5L;
+        for (int i = 0; i < size; i++) {
+            long scaled = prices[i] * table[base + f[i]];
+            taxOut[i] = (scaled + nickel - 1) / nickel * 5;
+        }
+    }
+
+    /** As {@link #computeTaxes(TaxRateTable, int, long[])}, looking each line up in the memo first. */
+    void computeTaxes(TaxRateTable rates, int jurisdiction, long[] taxOut, TaxMemo memo) {
+        int[] table = rates.rates();
+        int base = rates.offset(jurisdiction);
+        for (int i = 0; i < size; i++) {
+            taxOut[i] = memo.tax(priceCents[i], table[base + flags[i]]);
+        }
+    }
+
+    /** Sum of all prices, before tax. */
+    public long totalPriceCents() {
+        long total = 0;
+        long[] prices = priceCents;
+        for (int i = 0; i < size; i++) {
+            total += prices[i];
+        }
+        return total;
+    }
+
+    private int nameId(String name) {
+        Integer id = nameIndex.get(name);
+        if (id != null) {
+            return id;
+        }
+        if (nameCount == names.length) {
+            names = Arrays.copyOf(names, nameCount * 2);
+        }
+        names[nameCount] = name;
+        nameIndex.put(name, nameCount);
+        return nameCount++;
+    }
+}
@@ -0,0 +1,52 @@
+package caltax.model;
+
+/**
+ * Fixed-point money helpers. Amounts are long cents and tax rates are basis
+ * points (1/100 of a percent), so every calculation is exact integer arithmetic.
+ */
+public final class Money {
+    public static final int BASIS_POINTS = 10000;
+
+    private Money() {
+    }
+
+    // Shelf prices have at most two decimals; rounding absorbs the binary error of the literal.
+    public static long toCents(double amount) {
+        return Math.round(amount * 100);
+    }
+
+    public static double toDouble(long cents) {
+        return cents / 100.0;
+    }
+
+    /** price * rate rounded up to the nearest 0.05, in cents. */
+    public static long tax(long priceCents, int rateBasisPoints) {
+        // cents * bp / 10000 is the tax in cents; dividing by 5 more gives nickels
+        long scaled = priceCents * rateBasisPoints;
+        long nickels = scaled / (BASIS_POINTS * 5);
+        if (nickels * (BASIS_POINTS * 5) < scaled) {
+            nickels++;
+        }
+        return nickels * 5;
+    }
+
+    /** Two-decimal text, the same as String.format("%.2f", cents / 100.0). */
+    public static String format(long cents) {
+        StringBuilder sb = new StringBuilder(12);
+        appendTo(sb, cents);
+        return sb.toString();
+    }
+
+    public static StringBuilder appendTo(StringBuilder sb, long cents) {
+        if (cents < 0) {
+            sb.append('-');
+            cents = -cents;
+        }
+        long fraction = cents % 100;
+        sb.append(cents / 100).append('.');
+        if (fraction < 10) {
+            sb.append('0');
+        }
+        return sb.append(fraction);
+    }
+}
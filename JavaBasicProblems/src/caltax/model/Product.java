@@ -3,15 +3,28 @@ package caltax.model;
 
 public class Product {
     private final String name;
-    private final double price;
+    private final long priceCents;
+    private final TaxCategory category;
     private final boolean isImported;
-    private final boolean isExempt;
 
     public Product(String name, double price, boolean isImported, boolean isExempt) {
+        this(name, price, isExempt ? TaxCategory.EXEMPT : TaxCategory.GENERAL, isImported);
+    }
+
+    public Product(String name, double price, TaxCategory category, boolean isImported) {
+        this(Money.toCents(price), name, category, isImported);
+    }
+
+    // Cents first: a (String, long, ...) signature would capture int literals meant for the double constructor.
+    private Product(long priceCents, String name, TaxCategory category, boolean isImported) {
         this.name = name;
-        this.price = price;
+        this.priceCents = priceCents;
+        this.category = category;
         this.isImported = isImported;
-        this.isExempt = isExempt;
+    }
+
+    public static Product ofCents(String name, long priceCents, TaxCategory category, boolean isImported) {
+        return new Product(priceCents, name, category, isImported);
     }
 
     public String getName() {
@@ -19,39 +32,49 @@ public class Product {
     }
 
     public double getPrice() {
-        return price;
+        return Money.toDouble(priceCents);
+    }
+
+    public long getPriceCents() {
+        return priceCents;
     }
 
     public boolean isImported() {
         return isImported;
     }
 
+    public TaxCategory getCategory() {
+        return category;
+    }
+
+    // Exempt from basic sales tax under the default rules.
     public boolean isExempt() {
-        return isExempt;
+        TaxService taxes = TaxService.DEFAULT;
+        return taxes.getRates().rate(taxes.getJurisdiction(), category, false) == 0;
     }
 
     public double calculateTax() {
-        double tax = 0.0;
-        if (!isExempt) {
-            tax += price * 0.10; // Basic sales tax
-        }
-        if (isImported) {
-            tax += price * 0.05; // Import duty
-        }
-        return roundToNearestFiveCents(tax);
+        return Money.toDouble(getTaxCents());
+    }
+
+    public long getTaxCents() {
+        return TaxService.DEFAULT.taxCents(this);
+    }
+
+    public long getTaxCents(TaxService service) {
+        return service.taxCents(this);
     }
 
     public double getPriceWithTax() {
-        return price + calculateTax();
+        return Money.toDouble(getPriceWithTaxCents());
     }
 
-    private double roundToNearestFiveCents(double amount) {
-        return Math.ceil(amount * 20) / 20.0;
+    public long getPriceWithTaxCents() {
+        return priceCents + getTaxCents();
     }
 
     @Override
     public String toString() {
-        return String.format("1 %s: %.2f", name, getPriceWithTax());
+        return Money.appendTo(new StringBuilder("1 ").append(name).append(": "), getPriceWithTaxCents()).toString();
     }
 }
-
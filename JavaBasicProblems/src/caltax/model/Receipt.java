@@ -1,27 +1,92 @@
 package caltax.model;
 
+import java.util.ArrayList;
 import java.util.List;
 
+/**
+ * Each line's tax is evaluated once, into lineTaxCents, and reused for the totals
+ * and for rendering. Lines are held as a {@link ColumnarBasket}, so the tax and
+ * total loops run over primitive arrays; a product list is converted on the way in.
+ */
 public class Receipt {
-    private final List<Product> products;
-    private final double totalTax;
-    private final double totalCost;
+    private final ColumnarBasket basket;
+    private List<Product> products;
+    private final long[] lineTaxCents;
+    private final long totalTaxCents;
+    private final long totalCostCents;
 
     public Receipt(List<Product> products) {
+        this(products, TaxService.DEFAULT);
+    }
+
+    public Receipt(List<Product> products, TaxService taxes) {
+        this(ColumnarBasket.of(products), taxes);
         this.products = products;
-        this.totalTax = products.stream().mapToDouble(Product::calculateTax).sum();
-        this.totalCost = products.stream().mapToDouble(Product::getPriceWithTax).sum();
     }
 
+    public Receipt(ColumnarBasket basket) {
+        this(basket, TaxService.DEFAULT);
+    }
+
+    public Receipt(ColumnarBasket basket, TaxService taxes) {
+        this.basket = basket;
+        this.lineTaxCents = new long[basket.size()];
+        taxes.computeTaxes(basket, lineTaxCents);
+        long tax = 0;
+        for (long lineTax : lineTaxCents) {
+            tax += lineTax;
+        }
+        this.totalTaxCents = tax;
+        this.totalCostCents = basket.totalPriceCents() + tax;
+    }
+
+    /** The lines as products; built on first call when the receipt was made from a columnar basket. */
     public List<Product> getProducts() {
+        if (products == null) {
+            List<Product> list = new ArrayList<>(basket.size());
+            for (int i = 0; i < basket.size(); i++) {
+                list.add(basket.toProduct(i));
+            }
+            products = list;
+        }
         return products;
     }
 
+    public ColumnarBasket getBasket() {
+        return basket;
+    }
+
+    public int getLineCount() {
+        return lineTaxCents.length;
+    }
+
+    public long getLineTaxCents(int line) {
+        return lineTaxCents[line];
+    }
+
+    public long getLineTotalCents(int line) {
+        return basket.getPriceCents(line) + lineTaxCents[line];
+    }
+
+    /** "1 name: price-with-tax", as Product.toString() prints it, without recomputing the tax. */
+    public StringBuilder appendLine(StringBuilder sb, int line) {
+        sb.append("1 ").append(basket.getName(line)).append(": ");
+        return Money.appendTo(sb, getLineTotalCents(line));
+    }
+
     public double getTotalTax() {
-        return totalTax;
+        return Money.toDouble(totalTaxCents);
     }
 
     public double getTotalCost() {
-        return totalCost;
+        return Money.toDouble(totalCostCents);
+    }
+
+    public long getTotalTaxCents() {
+        return totalTaxCents;
+    }
+
+    public long getTotalCostCents() {
+        return totalCostCents;
     }
 }
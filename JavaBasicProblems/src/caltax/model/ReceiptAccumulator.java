@@ -0,0 +1,88 @@
+package caltax.model;
+
+import java.io.IOException;
+import java.util.stream.Collector;
+
+/**
+ * Running receipt totals for baskets that arrive one line at a time and may be too
+ * large to hold. Each pushed line is taxed once through the {@link TaxService},
+ * folded into fixed-point totals and, if a renderer is given, written out straight
+ * away; nothing per line is kept, so memory is O(1) in the basket size.
+ *
+ * Tax is rounded per line, so the totals are plain sums and partial accumulators
+ * over any split of the lines can be {@link #merge merged} into the exact result.
+ * Not thread-safe: give each partition its own accumulator and merge them after.
+ */
+public final class ReceiptAccumulator {
+    private final TaxService taxes;
+    private long lines;
+    private long priceCents;
+    private long taxCents;
+
+    public ReceiptAccumulator() {
+        this(TaxService.DEFAULT);
+    }
+
+    public ReceiptAccumulator(TaxService taxes) {
+        this.taxes = taxes;
+    }
+
+    /** Collects products into one accumulator; parallel streams combine partitions with {@link #merge}. */
+    public static Collector<Product, ?, ReceiptAccumulator> toReceipt(TaxService taxes) {
+        return Collector.of(() -> new ReceiptAccumulator(taxes), ReceiptAccumulator::add, ReceiptAccumulator::merge,
+                Collector.Characteristics.UNORDERED);
+    }
+
+    /** Adds one line and returns its tax in cents. */
+    public long add(long linePriceCents, TaxCategory category, boolean imported) {
+        long lineTax = taxes.taxCents(linePriceCents, category, imported);
+        lines++;
+        priceCents += linePriceCents;
+        taxCents += lineTax;
+        return lineTax;
+    }
+
+    public long add(Product product) {
+        return add(product.getPriceCents(), product.getCategory(), product.isImported());
+    }
+
+    /** Adds one line and renders it as "1 name: price-with-tax" before it is dropped. */
+    public long add(CharSequence name, long linePriceCents, TaxCategory category, boolean imported,
+                    ReceiptRenderer out) throws IOException {
+        long lineTax = add(linePriceCents, category, imported);
+        out.line(true, name, linePriceCents + lineTax);
+        return lineTax;
+    }
+
+    /** Folds another partition of the same basket into this one and returns this. */
+    public ReceiptAccumulator merge(ReceiptAccumulator other) {
+        if (other.taxes != taxes) {
+            throw new IllegalArgumentException("Cannot merge receipts taxed by different services");
+        }
+        lines += other.lines;
+        priceCents += other.priceCents;
+        taxCents += other.taxCents;
+        return this;
+    }
+
+    /** The "Sales Taxes:" and "Total:" lines for everything added so far. */
+    public void renderTotals(ReceiptRenderer out) throws IOException {
+        out.totals(taxCents, getTotalCostCents());
+    }
+
+    public long getLineCount() {
+        return lines;
+    }
+
+    public long getTotalPriceCents() {
+        return priceCents;
+    }
+
+    public long getTotalTaxCents() {
+        return taxCents;
+    }
+
+    public long getTotalCostCents() {
+        return priceCents + taxCents;
+    }
+}
@@ -0,0 +1,224 @@
+package caltax.model;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes receipts straight into a reusable byte buffer and flushes it through a
+ * channel when full. Amounts go through a hand-rolled two-decimal formatter and
+ * names are encoded in place, so steady-state rendering allocates nothing per line.
+ *
+ * Output is byte-for-byte what the println/printf code produced: "1 name: 12.49"
+ * lines for caltax receipts, "name: 12.49" for salestaxcal, then the "Sales Taxes:"
+ * and "Total:" lines. Console output takes the platform line separator and
+ * {@link #stdoutCharset()}.
+ * ASCII is copied directly and UTF-8 is encoded by hand; any other charset goes
+ * through one reused encoder.
+ *
+ * Not thread-safe; callers must {@link #flush()} before anyone else writes to the
+ * same stream.
+ */
+public final class ReceiptRenderer {
+    private static final byte[] QUANTITY_PREFIX = ascii("1 ");
+    private static final byte[] NAME_SEPARATOR = ascii(": ");
+    private static final byte[] SALES_TAXES = ascii("Sales Taxes: ");
+    private static final byte[] TOTAL = ascii("Total: ");
+
+    private final WritableByteChannel out;
+    private final byte[] buf;
+    private final ByteBuffer view;
+    private final byte[] newline;
+    // null for UTF-8, which is encoded inline
+    private final CharsetEncoder encoder;
+    private final CharBuffer pending = CharBuffer.allocate(2);
+    private final ByteBuffer encoded = ByteBuffer.allocate(16);
+    private int pos;
+
+    /** Same bytes as println on a PrintStream with this charset: platform line separator. */
+    public ReceiptRenderer(OutputStream out, Charset charset) {
+        this(Channels.newChannel(out), 8192, System.lineSeparator(), charset);
+    }
+
+    public ReceiptRenderer(WritableByteChannel out, int bufferSize, String lineSeparator) {
+        this(out, bufferSize, lineSeparator, StandardCharsets.UTF_8);
+    }
+
+    public ReceiptRenderer(WritableByteChannel out, int bufferSize, String lineSeparator, Charset charset) {
+        this.out = out;
+        // room for one amount or one encoded char at any time
+        this.buf = new byte[Math.max(64, bufferSize)];
+        this.view = ByteBuffer.wrap(buf);
+        this.newline = ascii(lineSeparator);
+        this.encoder = charset.equals(StandardCharsets.UTF_8) ? null : charset.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    }
+
+    /**
+     * The charset System.out encodes with. From JDK 18 that is stdout.encoding, which
+     * can differ from the default charset (UTF-8 there); before, it is the default.
+     */
+    public static Charset stdoutCharset() {
+        String name = System.getProperty("stdout.encoding");
+        try {
+            if (name != null && Charset.isSupported(name)) {
+                return Charset.forName(name);
+            }
+        } catch (IllegalArgumentException e) {
+            // malformed name: fall through to the default
+        }
+        return Charset.defaultCharset();
+    }
+
+    /** A caltax receipt: "1 name: amount" per line, then the two totals. */
+    public void render(Receipt receipt) throws IOException {
+        ColumnarBasket lines = receipt.getBasket();
+        for (int i = 0; i < receipt.getLineCount(); i++) {
+            line(true, lines.getName(i), receipt.getLineTotalCents(i));
+        }
+        totals(receipt.getTotalTaxCents(), receipt.getTotalCostCents());
+    }
+
+    /** One item line, with or without the leading "1 ". */
+    public void line(boolean withQuantity, CharSequence name, long cents) throws IOException {
+        if (withQuantity) {
+            write(QUANTITY_PREFIX);
+        }
+        text(name);
+        write(NAME_SEPARATOR);
+        amount(cents);
+        newline();
+    }
+
+    public void totals(long taxCents, long totalCents) throws IOException {
+        write(SALES_TAXES);
+        amount(taxCents);
+        newline();
+        write(TOTAL);
+        amount(totalCents);
+        newline();
+    }
+
+    public void text(CharSequence s) throws IOException {
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                ensure(1);
+                buf[pos++] = (byte) c;
+            } else {
+                boolean pair = Character.isHighSurrogate(c) && i + 1 < s.length()
+                        && Character.isLowSurrogate(s.charAt(i + 1));
+                char low = pair ? s.charAt(++i) : 0;
+                if (encoder != null) {
+                    encode(c, low, pair);
+                } else if (pair) {
+                    utf8(Character.toCodePoint(c, low));
+                } else {
+                    // a lone surrogate becomes '?', as the UTF-8 encoder substitutes
+                    utf8(Character.isSurrogate(c) ? '?' : c);
+                }
+            }
+        }
+    }
+
+    public void newline() throws IOException {
+        write(newline);
+    }
+
+    /** cents as [-]units.cc, the same digits as String.format("%.2f", cents / 100.0). */
+    public void amount(long cents) throws IOException {
+        ensure(24);
+        if (cents < 0) {
+            buf[pos++] = '-';
+        }
+        // negate into the negative range so Long.MIN_VALUE works too
+        long n = cents < 0 ? cents : -cents;
+        int fraction = (int) -(n % 100);
+        long units = -(n / 100);
+        int digits = 1;
+        for (long t = units; t >= 10; t /= 10) {
+            digits++;
+        }
+        int end = pos + digits;
+        int p = end;
+        do {
+            buf[--p] = (byte) ('0' + units % 10);
+            units /= 10;
+        } while (units > 0);
+        pos = end;
+        buf[pos++] = '.';
+        buf[pos++] = (byte) ('0' + fraction / 10);
+        buf[pos++] = (byte) ('0' + fraction % 10);
+    }
+
+    public void flush() throws IOException {
+        view.clear().limit(pos);
+        while (view.hasRemaining()) {
+            out.write(view);
+        }
+        pos = 0;
+    }
+
+    private void write(byte[] bytes) throws IOException {
+        if (pos + bytes.length > buf.length) {
+            flush();
+        }
+        System.arraycopy(bytes, 0, buf, pos, bytes.length);
+        pos += bytes.length;
+    }
+
+    private void utf8(int cp) throws IOException {
+        ensure(4);
+        if (cp < 0x80) {
+            buf[pos++] = (byte) cp;
+            return;
+        }
+        if (cp < 0x800) {
+            buf[pos++] = (byte) (0xC0 | (cp >> 6));
+        } else if (cp < 0x10000) {
+            buf[pos++] = (byte) (0xE0 | (cp >> 12));
+            buf[pos++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+        } else {
+            buf[pos++] = (byte) (0xF0 | (cp >> 18));
+            buf[pos++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+            buf[pos++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+        }
+        buf[pos++] = (byte) (0x80 | (cp & 0x3F));
+    }
+
+    private void encode(char c, char low, boolean pair) throws IOException {
+        pending.clear();
+        pending.put(c);
+        if (pair) {
+            pending.put(low);
+        }
+        pending.flip();
+        encoded.clear();
+        encoder.reset();
+        encoder.encode(pending, encoded, true);
+        encoder.flush(encoded);
+        encoded.flip();
+        int n = encoded.remaining();
+        ensure(n);
+        encoded.get(buf, pos, n);
+        pos += n;
+    }
+
+    private void ensure(int bytes) throws IOException {
+        if (pos + bytes > buf.length) {
+            flush();
+        }
+    }
+
+    private static byte[] ascii(String s) {
+        return s.getBytes(StandardCharsets.US_ASCII);
+    }
+}
@@ -1,15 +1,20 @@
 package caltax.model;
 
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.List;
 
 public class ReceiptService {
     public static void printReceipt(List<Product> products) {
         Receipt receipt = new Receipt(products);
 
-        receipt.getProducts().forEach(System.out::println);
-        System.out.printf("Sales Taxes: %.2f%n", receipt.getTotalTax());
-        System.out.printf("Total: %.2f%n", receipt.getTotalCost());
+        try {
+            ReceiptRenderer renderer = new ReceiptRenderer(System.out, ReceiptRenderer.stdoutCharset());
+            renderer.render(receipt);
+            renderer.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
     }
 }
-
@@ -4,25 +4,19 @@ package caltax.model;
 public class TaxCalculator {
 
     public static double calculateTax(Product item) {
-        double tax = 0.0;
-
-        if (!item.isExempt()) {
-            tax += item.getPrice() * 0.10;
-            // Basic sales tax
-        }
-        if (item.isImported()) {
-            tax += item.getPrice() * 0.05; 
-            // Import duty
-        }
+        return Money.toDouble(calculateTaxCents(item));
+    }
 
-        return roundToNearestFiveCents(tax);
+    // Kept for existing callers; the computation lives in TaxService.
+    public static long calculateTaxCents(Product item) {
+        return TaxService.DEFAULT.taxCents(item);
     }
 
-    public static double calculatePriceWithTax(Product item) {
-        return item.getPrice() + calculateTax(item);
+    public static long calculateTaxCents(Product item, TaxService service) {
+        return service.taxCents(item);
     }
 
-    private static double roundToNearestFiveCents(double amount) {
-        return Math.ceil(amount * 20) / 20.0;
+    public static double calculatePriceWithTax(Product item) {
+        return Money.toDouble(item.getPriceCents() + calculateTaxCents(item));
     }
 }
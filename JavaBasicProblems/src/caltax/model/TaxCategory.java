@@ -0,0 +1,12 @@
+package caltax.model;
+
+/** What a product is, as far as tax rules care. Ordinals index the compiled rate table. */
+public enum TaxCategory {
+    GENERAL,
+    BOOK,
+    FOOD,
+    MEDICAL,
+    EXEMPT;
+
+    static final TaxCategory[] VALUES = values();
+}
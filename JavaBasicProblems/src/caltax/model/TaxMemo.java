@@ -0,0 +1,125 @@
+package caltax.model;
+
+import java.util.Arrays;
+
+/**
+ * Bounded memo of {@link Money#tax} results for catalogs that repeat the same
+ * price over and over.
+ *
+ * Keys are (price in cents, combined rate in basis points) packed into one long;
+ * the rate already encodes category, import status and jurisdiction, so it stands in
+ * for the product flags. Entries live in parallel primitive arrays with open
+ * addressing over a fixed probe window of {@link #PROBE_WINDOW} slots. When the
+ * window is full, a clock sweep over it evicts the first entry not used since the
+ * last sweep.
+ *
+ * Not thread-safe: use one memo per thread. Now that the tax itself is one
+ * multiply and one divide, a lookup costs more than recomputing on current JVMs;
+ * the memo only pays off if the per-line computation grows (e.g. rules that call out).
+ */
+public final class TaxMemo {
+    public static final int PROBE_WINDOW = 8;
+    // basic rate plus import duty, each at most 10000 bp, so 20000 bp < 2^15
+    private static final int RATE_BITS = 15;
+    private static final long MAX_PRICE = (1L << (63 - RATE_BITS)) - 2;
+
+    private final long[] keys;
+    private final long[] values;
+    private final boolean[] referenced;
+    private final int mask;
+    private int hand;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    /** Capacity is rounded up to a power of two, at least the probe window. */
+    public TaxMemo(int capacity) {
+        int size = Integer.highestOneBit(Math.max(PROBE_WINDOW, capacity) - 1) << 1;
+        keys = new long[size];
+        values = new long[size];
+        referenced = new boolean[size];
+        mask = size - 1;
+    }
+
+    public long tax(long priceCents, int rateBasisPoints) {
+        if (priceCents < 0 || priceCents > MAX_PRICE
+                || rateBasisPoints < 0 || rateBasisPoints >= 1 << RATE_BITS) {
+            return Money.tax(priceCents, rateBasisPoints);
+        }
+        // +1 so that 0 can mean an empty slot
+        long key = ((priceCents << RATE_BITS) | rateBasisPoints) + 1;
+        int home = mix(key) & mask;
+        int free = -1;
+        for (int i = 0; i < PROBE_WINDOW; i++) {
+            int slot = (home + i) & mask;
+            long k = keys[slot];
+            if (k == key) {
+                referenced[slot] = true;
+                hits++;
+                return values[slot];
+            }
+            if (k == 0 && free < 0) {
+                free = slot;
+            }
+        }
+        misses++;
+        long tax = Money.tax(priceCents, rateBasisPoints);
+        int slot = free >= 0 ? free : victim(home);
+        keys[slot] = key;
+        values[slot] = tax;
+        referenced[slot] = false;
+        return tax;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    public long getEvictions() {
+        return evictions;
+    }
+
+    public double getHitRatio() {
+        long total = hits + misses;
+        return total == 0 ? 0.0 : (double) hits / total;
+    }
+
+    public int capacity() {
+        return keys.length;
+    }
+
+    public void clear() {
+        Arrays.fill(keys, 0L);
+        Arrays.fill(referenced, false);
+        hand = 0;
+        hits = 0;
+        misses = 0;
+        evictions = 0;
+    }
+
+    // Second chance within the window, starting where the last sweep stopped.
+    private int victim(int home) {
+        evictions++;
+        for (int i = 0; i < PROBE_WINDOW; i++) {
+            int slot = (home + ((hand + i) & (PROBE_WINDOW - 1))) & mask;
+            if (!referenced[slot]) {
+                hand = (hand + i + 1) & (PROBE_WINDOW - 1);
+                return slot;
+            }
+            referenced[slot] = false;
+        }
+        int slot = (home + hand) & mask;
+        hand = (hand + 1) & (PROBE_WINDOW - 1);
+        return slot;
+    }
+
+    private static int mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
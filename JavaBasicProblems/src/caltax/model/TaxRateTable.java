@@ -0,0 +1,55 @@
+package caltax.model;
+
+/**
+ * Compiled tax rules: one flat array of combined rates in basis points, indexed by
+ * jurisdiction, category and import status. A line's tax is one array load and one
+ * {@link Money#tax} call, however many rules went into the table. Callers normally go
+ * through a {@link TaxService} bound to one jurisdiction.
+ */
+public final class TaxRateTable {
+    /** The rules from the original problem: 10% basic tax except books, food and medical; 5% import duty. */
+    public static final TaxRateTable DEFAULT = new TaxRules()
+            .basicRate("default", TaxCategory.GENERAL, 1000)
+            .importDuty("default", 500)
+            .compile();
+    public static final int DEFAULT_JURISDICTION = 0;
+
+    private final String[] jurisdictions;
+    private final int[] rates;
+
+    TaxRateTable(String[] jurisdictions, int[] rates) {
+        this.jurisdictions = jurisdictions;
+        this.rates = rates;
+    }
+
+    /** Index of a jurisdiction for the int-based lookups; resolve once, not per line. */
+    public int jurisdiction(String name) {
+        for (int i = 0; i < jurisdictions.length; i++) {
+            if (jurisdictions[i].equals(name)) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("Unknown jurisdiction: " + name);
+    }
+
+    public int rate(int jurisdiction, int category, boolean imported) {
+        return rates[((jurisdiction * TaxCategory.VALUES.length + category) << 1) | (imported ? 1 : 0)];
+    }
+
+    public int rate(int jurisdiction, TaxCategory category, boolean imported) {
+        return rate(jurisdiction, category.ordinal(), imported);
+    }
+
+    // Start of a jurisdiction's slice; add (category ordinal << 1) | imported for the line's rate.
+    int offset(int jurisdiction) {
+        return jurisdiction * TaxCategory.VALUES.length << 1;
+    }
+
+    int[] rates() {
+        return rates;
+    }
+
+    public long tax(long priceCents, int jurisdiction, TaxCategory category, boolean imported) {
+        return Money.tax(priceCents, rate(jurisdiction, category.ordinal(), imported));
+    }
+}
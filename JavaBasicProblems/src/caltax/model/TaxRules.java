@@ -0,0 +1,61 @@
+package caltax.model;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Collects basic-rate and import-duty rules per jurisdiction and compiles them into
+ * a {@link TaxRateTable}. Categories without a rule pay no basic tax.
+ *
+ * <pre>
+ * TaxRateTable table = new TaxRules()
+ *         .basicRate("default", TaxCategory.GENERAL, 1000)
+ *         .importDuty("default", 500)
+ *         .compile();
+ * </pre>
+ */
+public class TaxRules {
+    private final Map<String, int[]> basicRates = new LinkedHashMap<>();
+    private final Map<String, Integer> importDuties = new LinkedHashMap<>();
+
+    public TaxRules basicRate(String jurisdiction, TaxCategory category, int basisPoints) {
+        check(basisPoints);
+        rates(jurisdiction)[category.ordinal()] = basisPoints;
+        return this;
+    }
+
+    public TaxRules importDuty(String jurisdiction, int basisPoints) {
+        check(basisPoints);
+        rates(jurisdiction);
+        importDuties.put(jurisdiction, basisPoints);
+        return this;
+    }
+
+    public TaxRateTable compile() {
+        List<String> names = new ArrayList<>(basicRates.keySet());
+        int categories = TaxCategory.VALUES.length;
+        int[] table = new int[names.size() * categories * 2];
+        for (int j = 0; j < names.size(); j++) {
+            int[] basic = basicRates.get(names.get(j));
+            int duty = importDuties.getOrDefault(names.get(j), 0);
+            for (int c = 0; c < categories; c++) {
+                int base = (j * categories + c) << 1;
+                table[base] = basic[c];
+                table[base | 1] = basic[c] + duty;
+            }
+        }
+        return new TaxRateTable(names.toArray(new String[0]), table);
+    }
+
+    private int[] rates(String jurisdiction) {
+        return basicRates.computeIfAbsent(jurisdiction, j -> new int[TaxCategory.VALUES.length]);
+    }
+
+    private static void check(int basisPoints) {
+        if (basisPoints < 0 || basisPoints > Money.BASIS_POINTS) {
+            throw new IllegalArgumentException("Rate out of range: " + basisPoints + " bp");
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package caltax.model;
+
+/**
+ * The one tax computation. Product, TaxCalculator, Receipt and salestaxcal.Item
+ * all delegate here.
+ *
+ * Immutable: a compiled {@link TaxRateTable} plus the jurisdiction index, both
+ * final, so one instance can be shared by any number of threads with no locking.
+ * The per-line methods allocate nothing.
+ */
+public final class TaxService {
+    /** The original rules: 10% basic tax except books, food and medical; 5% import duty. */
+    public static final TaxService DEFAULT = new TaxService(TaxRateTable.DEFAULT, TaxRateTable.DEFAULT_JURISDICTION);
+
+    private final TaxRateTable rates;
+    private final int jurisdiction;
+
+    public TaxService(TaxRateTable rates, int jurisdiction) {
+        rates.rate(jurisdiction, 0, false); // fail here, not on the first line, for a bad index
+        this.rates = rates;
+        this.jurisdiction = jurisdiction;
+    }
+
+    public TaxService(TaxRateTable rates, String jurisdiction) {
+        this(rates, rates.jurisdiction(jurisdiction));
+    }
+
+    public long taxCents(long priceCents, TaxCategory category, boolean imported) {
+        return Money.tax(priceCents, rates.rate(jurisdiction, category.ordinal(), imported));
+    }
+
+    public long taxCents(Product product) {
+        return taxCents(product.getPriceCents(), product.getCategory(), product.isImported());
+    }
+
+    /** Same result through a memo; the memo is per thread, the service is not. */
+    public long taxCents(long priceCents, TaxCategory category, boolean imported, TaxMemo memo) {
+        return memo.tax(priceCents, rates.rate(jurisdiction, category.ordinal(), imported));
+    }
+
+    public long priceWithTaxCents(long priceCents, TaxCategory category, boolean imported) {
+        return priceCents + taxCents(priceCents, category, imported);
+    }
+
+    /** Every line's tax into taxOut[0..basket.size()). */
+    public void computeTaxes(ColumnarBasket basket, long[] taxOut) {
+        basket.computeTaxes(rates, jurisdiction, taxOut);
+    }
+
+    public void computeTaxes(ColumnarBasket basket, long[] taxOut, TaxMemo memo) {
+        basket.computeTaxes(rates, jurisdiction, taxOut, memo);
+    }
+
+    public TaxRateTable getRates() {
+        return rates;
+    }
+
+    public int getJurisdiction() {
+        return jurisdiction;
+    }
+}
@@ -1,40 +1,43 @@
 package salestaxcal;
 
+import caltax.model.Money;
+import caltax.model.TaxCategory;
+import caltax.model.TaxService;
+
 public class Item {
     String name;
-    double price;
+    long priceCents;
+    TaxCategory category;
     boolean isImported;
-    boolean isExempt;
 
     // Constructor
     public Item(String name, double price, boolean isImported, boolean isExempt) {
+        this(name, price, isExempt ? TaxCategory.EXEMPT : TaxCategory.GENERAL, isImported);
+    }
+
+    public Item(String name, double price, TaxCategory category, boolean isImported) {
         this.name = name;
-        this.price = price;
+        this.priceCents = Money.toCents(price);
+        this.category = category;
         this.isImported = isImported;
-        this.isExempt = isExempt;
     }
 
     // Method to calculate the sales tax for the item
     public double calculateTax() {
-        double tax = 0.0;
-        // Apply 10% basic sales tax if not exempt
-        if (!isExempt) {
-            tax += price * 0.10;
-        }
-        // Apply 5% import duty if the item is imported
-        if (isImported) {
-            tax += price * 0.05;
-        }
-        return roundToNearestFiveCents(tax);
+        return Money.toDouble(calculateTaxCents());
     }
 
-    // Method to round tax to the nearest 0.05
-    private double roundToNearestFiveCents(double amount) {
-        return Math.ceil(amount * 20) / 20.0;
+    // Same computation as caltax: basic sales tax plus import duty, rounded up to 0.05
+    public long calculateTaxCents() {
+        return TaxService.DEFAULT.taxCents(priceCents, category, isImported);
     }
 
     // Method to get the final price including tax
     public double getPriceWithTax() {
-        return price + calculateTax();
+        return Money.toDouble(getPriceWithTaxCents());
+    }
+
+    public long getPriceWithTaxCents() {
+        return priceCents + calculateTaxCents();
     }
 }
@@ -1,24 +1,35 @@
 package salestaxcal;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.*;
 
+import caltax.model.ReceiptRenderer;
+
 public class SalesTaxCalculator {
 
     // Method to print the receipt for the shopping basket
     public static void printReceipt(List<Item> items) {
-        double totalTax = 0.0;
-        double totalCost = 0.0;
-
-        // Print item details
-        for (Item item : items) {
-            System.out.println(item.name + ": " + String.format("%.2f", item.getPriceWithTax()));
-            totalTax += item.calculateTax();
-            totalCost += item.getPriceWithTax();
+        long totalTax = 0;
+        long totalCost = 0;
+
+        try {
+            ReceiptRenderer renderer = new ReceiptRenderer(System.out, ReceiptRenderer.stdoutCharset());
+            // Print item details; each item's tax is computed once and reused
+            for (Item item : items) {
+                long tax = item.calculateTaxCents();
+                long lineTotal = item.priceCents + tax;
+                renderer.line(false, item.name, lineTotal);
+                totalTax += tax;
+                totalCost += lineTotal;
+            }
+
+            // Print the total sales taxes and total cost (in cents, so the sums are exact)
+            renderer.totals(totalTax, totalCost);
+            renderer.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
         }
-
-        // Print the total sales taxes and total cost
-        System.out.println("Sales Taxes: " + String.format("%.2f", totalTax));
-        System.out.println("Total: " + String.format("%.2f", totalCost));
     }
 
     // Main method to test the solution
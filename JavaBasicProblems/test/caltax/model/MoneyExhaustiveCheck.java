@@ -0,0 +1,65 @@
+package caltax.model;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Compares the fixed-point {@link Money} arithmetic with BigDecimal for every
+ * shelf price from 0.01 to 10,000.00 at the 0, 5, 10 and 15% rates the receipts
+ * use. There is no test framework in this tree, so run it directly:
+ * java caltax.model.MoneyExhaustiveCheck
+ */
+public class MoneyExhaustiveCheck {
+    private static final long MAX_CENTS = 1000000;
+    private static final int[] RATES = { 0, 500, 1000, 1500 };
+    private static final BigDecimal NICKEL = new BigDecimal("0.05");
+
+    public static void main(String[] args) {
+        taxMatchesBigDecimal();
+        formatMatchesStringFormat();
+        centsSurviveDoubleRoundTrip();
+        System.out.println("MoneyExhaustiveCheck passed");
+    }
+
+    static void taxMatchesBigDecimal() {
+        for (int rate : RATES) {
+            BigDecimal fraction = BigDecimal.valueOf(rate, 4);
+            for (long cents = 1; cents <= MAX_CENTS; cents++) {
+                BigDecimal tax = BigDecimal.valueOf(cents, 2).multiply(fraction);
+                BigDecimal rounded = tax.divide(NICKEL, 0, RoundingMode.CEILING).multiply(NICKEL);
+                long expected = rounded.movePointRight(2).longValueExact();
+                long actual = Money.tax(cents, rate);
+                if (actual != expected) {
+                    throw new AssertionError("tax(" + cents + ", " + rate + ") = " + actual + ", expected " + expected);
+                }
+            }
+        }
+    }
+
+    static void formatMatchesStringFormat() {
+        for (long cents = -MAX_CENTS; cents <= MAX_CENTS; cents += 7) {
+            check(cents);
+        }
+        for (long cents = 0; cents < 1000; cents++) {
+            check(cents);
+            check(-cents);
+        }
+    }
+
+    static void centsSurviveDoubleRoundTrip() {
+        for (long cents = 1; cents <= MAX_CENTS; cents++) {
+            long back = Money.toCents(Money.toDouble(cents));
+            if (back != cents) {
+                throw new AssertionError("toCents(toDouble(" + cents + ")) = " + back);
+            }
+        }
+    }
+
+    private static void check(long cents) {
+        String expected = String.format("%.2f", cents / 100.0);
+        String actual = Money.format(cents);
+        if (!actual.equals(expected)) {
+            throw new AssertionError("format(" + cents + ") = " + actual + ", expected " + expected);
+        }
+    }
+}
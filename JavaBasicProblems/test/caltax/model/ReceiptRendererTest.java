@@ -0,0 +1,139 @@
+package caltax.model;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.math.BigDecimal;
+import java.nio.channels.Channels;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Checks that {@link ReceiptRenderer} writes the same bytes as the String code it
+ * replaced: println of "1 " + name + ": " + Money.format(cents), then the
+ * "Sales Taxes:" and "Total:" lines. There is no test framework in this tree, so run
+ * it directly: java caltax.model.ReceiptRendererTest
+ */
+public class ReceiptRendererTest {
+    private static final String[] NAMES = {
+        "book", "imported bottle of perfume", "caf\u00e9 cr\u00e8me", "\u20ac coin", "\u65e5\u672c\u8336",
+        "smile \ud83d\ude00", "lone \ud83d surrogate", "tail \ude00", "", "a: b, \"c\""
+    };
+    private static final long[] AMOUNTS = {
+        0, 1, 5, 9, 10, 11, 99, 100, 101, 999, 1000, 1249, 100000, -1, -9, -10, -99, -100, -101, -1249,
+        Long.MAX_VALUE, Long.MIN_VALUE + 1
+    };
+    private static final Charset[] CHARSETS = {
+        StandardCharsets.UTF_8, StandardCharsets.US_ASCII, StandardCharsets.ISO_8859_1, Charset.forName("windows-1252")
+    };
+
+    public static void main(String[] args) throws IOException {
+        for (Charset charset : CHARSETS) {
+            for (String separator : new String[] { "\n", "\r\n" }) {
+                for (int bufferSize : new int[] { 64, 8192 }) {
+                    linesMatchPrintln(charset, separator, bufferSize);
+                    receiptsMatchReceiptService(charset, separator, bufferSize);
+                }
+            }
+        }
+        amountsMatchBigDecimal();
+        System.out.println("ReceiptRendererTest passed");
+    }
+
+    static void linesMatchPrintln(Charset charset, String separator, int bufferSize) throws IOException {
+        Random random = new Random(42);
+        Expected expected = new Expected(charset, separator);
+        ByteArrayOutputStream actual = new ByteArrayOutputStream();
+        ReceiptRenderer renderer = new ReceiptRenderer(Channels.newChannel(actual), bufferSize, separator, charset);
+        long tax = 0;
+        long total = 0;
+        for (int i = 0; i < 20000; i++) {
+            String name = NAMES[i % NAMES.length];
+            long cents = i < AMOUNTS.length ? AMOUNTS[i] : random.nextInt(2000000) - 1000000;
+            boolean withQuantity = i % 3 != 0;
+            renderer.line(withQuantity, name, cents);
+            expected.println((withQuantity ? "1 " : "") + name + ": " + Money.format(cents));
+            tax += cents / 7;
+            total += cents;
+        }
+        renderer.totals(tax, total);
+        expected.println("Sales Taxes: " + Money.format(tax));
+        expected.println("Total: " + Money.format(total));
+        renderer.flush();
+        compare(expected.bytes(), actual.toByteArray(), charset + ", buffer " + bufferSize);
+    }
+
+    static void receiptsMatchReceiptService(Charset charset, String separator, int bufferSize) throws IOException {
+        List<Product> products = Arrays.asList(
+                new Product("imported bottle of perfume", 27.99, true, false),
+                new Product("bottle of perfume", 18.99, false, false),
+                new Product("packet of headache pills", 9.75, false, true),
+                new Product("bo\u00eete de chocolats import\u00e9s", 11.25, true, true));
+        Receipt receipt = new Receipt(products);
+        Expected expected = new Expected(charset, separator);
+        for (Product p : products) {
+            expected.println(p.toString());
+        }
+        expected.println("Sales Taxes: " + Money.format(receipt.getTotalTaxCents()));
+        expected.println("Total: " + Money.format(receipt.getTotalCostCents()));
+
+        ByteArrayOutputStream actual = new ByteArrayOutputStream();
+        ReceiptRenderer renderer = new ReceiptRenderer(Channels.newChannel(actual), bufferSize, separator, charset);
+        renderer.render(receipt);
+        renderer.flush();
+        compare(expected.bytes(), actual.toByteArray(), "receipt in " + charset);
+    }
+
+    // Money.format cannot negate Long.MIN_VALUE, so the extremes are checked against BigDecimal.
+    static void amountsMatchBigDecimal() throws IOException {
+        long[] extremes = { Long.MIN_VALUE, Long.MAX_VALUE, Long.MIN_VALUE + 1, -1, 0 };
+        for (long cents : extremes) {
+            ByteArrayOutputStream actual = new ByteArrayOutputStream();
+            ReceiptRenderer renderer = new ReceiptRenderer(Channels.newChannel(actual), 64, "\n");
+            renderer.amount(cents);
+            renderer.flush();
+            String text = new String(actual.toByteArray(), StandardCharsets.US_ASCII);
+            String expected = BigDecimal.valueOf(cents, 2).toPlainString();
+            if (!text.equals(expected)) {
+                throw new AssertionError("amount(" + cents + ") = " + text + ", expected " + expected);
+            }
+        }
+    }
+
+    /** What System.out.println wrote with the given charset and line separator. */
+    private static final class Expected {
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        private final PrintStream out;
+        private final String separator;
+
+        Expected(Charset charset, String separator) throws IOException {
+            this.out = new PrintStream(bytes, false, charset.name());
+            this.separator = separator;
+        }
+
+        void println(String line) {
+            out.print(line);
+            out.print(separator);
+        }
+
+        byte[] bytes() {
+            out.flush();
+            return bytes.toByteArray();
+        }
+    }
+
+    private static void compare(byte[] expected, byte[] actual, String what) {
+        if (Arrays.equals(expected, actual)) {
+            return;
+        }
+        int i = 0;
+        while (i < Math.min(expected.length, actual.length) && expected[i] == actual[i]) {
+            i++;
+        }
+        throw new AssertionError(what + ": output differs at byte " + i + " of " + expected.length
+                + " (got " + actual.length + " bytes)");
+    }
+}
@@ -0,0 +1,59 @@
+package caltax.model;
+
+/**
+ * Checks {@link TaxMemo} against {@link Money#tax}. There is no test framework in
+ * this tree, so run it directly: java caltax.model.TaxMemoTest
+ */
+public class TaxMemoTest {
+    public static void main(String[] args) {
+        combinedRateAboveFourteenBits();
+        ratesOutsideTheKeyAreComputedDirectly();
+        clearForgetsEverything();
+        System.out.println("TaxMemoTest passed");
+    }
+
+    // 10000 bp basic plus 10000 bp duty; with a 14-bit rate field (100, 20000)
+    // and (101, 3616) packed to the same key.
+    static void combinedRateAboveFourteenBits() {
+        TaxMemo memo = new TaxMemo(64);
+        check(memo, 100, 20000);
+        check(memo, 101, 3616);
+        check(memo, 101, 616);
+        for (int rate = 16384; rate <= 20000; rate += 101) {
+            for (long price = 0; price < 300; price++) {
+                check(memo, price, rate);
+                check(memo, price, rate - 16384);
+            }
+        }
+    }
+
+    static void ratesOutsideTheKeyAreComputedDirectly() {
+        TaxMemo memo = new TaxMemo(64);
+        check(memo, 1999, 1 << 15);
+        check(memo, 1999, 40000);
+        if (memo.getHits() + memo.getMisses() != 0) {
+            throw new AssertionError("out-of-range rates must bypass the memo");
+        }
+    }
+
+    static void clearForgetsEverything() {
+        TaxMemo memo = new TaxMemo(8);
+        for (long price = 0; price < 100; price++) {
+            check(memo, price, 1500);
+            check(memo, price, 1500);
+        }
+        memo.clear();
+        check(memo, 42, 1500);
+        if (memo.getHits() != 0 || memo.getMisses() != 1 || memo.getEvictions() != 0) {
+            throw new AssertionError("clear() left state behind");
+        }
+    }
+
+    private static void check(TaxMemo memo, long priceCents, int rate) {
+        long expected = Money.tax(priceCents, rate);
+        long actual = memo.tax(priceCents, rate);
+        if (actual != expected) {
+            throw new AssertionError("tax(" + priceCents + ", " + rate + ") = " + actual + ", expected " + expected);
+        }
+    }
+}
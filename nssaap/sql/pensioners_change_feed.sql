@@ -0,0 +1,22 @@
+-- Change tracking for pensioners_transections_last_update_details.
+-- PensionersChangeFeed reads rows by updated_at and wakes up on the
+-- pensioners_changed notification.
+
+ALTER TABLE pensioners_transections_last_update_details
+    ADD COLUMN IF NOT EXISTS updated_at timestamptz NOT NULL DEFAULT clock_timestamp();
+
+CREATE INDEX IF NOT EXISTS pensioners_tlud_updated_at_idx
+    ON pensioners_transections_last_update_details (updated_at);
+
+CREATE OR REPLACE FUNCTION pensioners_tlud_touch() RETURNS trigger AS $$
+BEGIN
+    NEW.updated_at := clock_timestamp();
+    PERFORM pg_notify('pensioners_changed', NEW.state_code::text);
+    RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS pensioners_tlud_touch ON pensioners_transections_last_update_details;
+CREATE TRIGGER pensioners_tlud_touch
+    BEFORE INSERT OR UPDATE ON pensioners_transections_last_update_details
+    FOR EACH ROW EXECUTE PROCEDURE pensioners_tlud_touch();
@@ -0,0 +1,28 @@
+-- Indexes for the keyset-paged listing (PensionersDAO.getPensionersPage).
+-- The page queries compare and order in byte order (COLLATE "C") so database
+-- pages agree with String.compareTo in the cache; a default-collation index
+-- cannot serve those, so each key column is indexed with COLLATE "C".
+-- Sorted by state_name or state_status, NULLs come last in both directions,
+-- hence one index per direction.
+
+CREATE INDEX IF NOT EXISTS pensioners_tlud_code_c_idx
+    ON pensioners_transections_last_update_details (state_code COLLATE "C");
+
+CREATE INDEX IF NOT EXISTS pensioners_tlud_status_filter_c_idx
+    ON pensioners_transections_last_update_details (state_status, state_code COLLATE "C");
+
+CREATE INDEX IF NOT EXISTS pensioners_tlud_name_c_idx
+    ON pensioners_transections_last_update_details
+       (state_name COLLATE "C" NULLS LAST, state_code COLLATE "C");
+
+CREATE INDEX IF NOT EXISTS pensioners_tlud_name_c_desc_idx
+    ON pensioners_transections_last_update_details
+       (state_name COLLATE "C" DESC NULLS LAST, state_code COLLATE "C" DESC);
+
+CREATE INDEX IF NOT EXISTS pensioners_tlud_state_status_c_idx
+    ON pensioners_transections_last_update_details
+       (state_status COLLATE "C" NULLS LAST, state_code COLLATE "C");
+
+CREATE INDEX IF NOT EXISTS pensioners_tlud_state_status_c_desc_idx
+    ON pensioners_transections_last_update_details
+       (state_status COLLATE "C" DESC NULLS LAST, state_code COLLATE "C" DESC);
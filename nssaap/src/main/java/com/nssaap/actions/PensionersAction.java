@@ -1,5 +1,126 @@
 package com.nssaap.actions;
 
-public class PensionersAction {
+import java.sql.SQLException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.struts.action.Action;
+import org.apache.struts.action.ActionForm;
+import org.apache.struts.action.ActionForward;
+import org.apache.struts.action.ActionMapping;
+
+import com.nssaap.dao.PensionersCache;
+import com.nssaap.dao.PensionersDAO.SortColumn;
+import com.nssaap.forms.PensionersForm;
+import com.nssaap.model.PensionersPage;
+import com.nssaap.utils.DaoExecutor;
+import com.nssaap.utils.DatabaseUnavailableException;
+
+/**
+ * Loads one page of the pensioners listing off the request thread. The action starts an
+ * async context, hands the load to {@link DaoExecutor} and returns straight away;
+ * the worker dispatches to the success page once the data is on the form.
+ * Paging comes from the pageSize, after, status, sort and desc parameters, and pages
+ * are cut from {@link PensionersCache}, so the worker only waits on PostgreSQL when
+ * nothing usable is cached. During an outage the last cached snapshot is shown,
+ * flagged as stale; only with nothing cached at all does the listing answer 503.
+ * A load that outlives the async timeout also answers 503; whichever of the worker
+ * and the container's timeout finishes the request first wins, and the other backs off.
+ */
+public class PensionersAction extends Action {
+    private static final long ASYNC_TIMEOUT_MILLIS = 30 * 1000;
+    private static final String RETRY_AFTER_SECONDS = "10";
+
+    @Override
+    public ActionForward execute(ActionMapping mapping, ActionForm form,
+                                 HttpServletRequest request, HttpServletResponse response) throws Exception {
+        PensionersForm pensionersForm = (PensionersForm) form;
+        String successPath = mapping.findForward("success").getPath();
+
+        if (!request.isAsyncSupported()) {
+            loadPage(pensionersForm);
+            return mapping.findForward("success");
+        }
+
+        AsyncContext async = request.startAsync(request, response);
+        async.setTimeout(ASYNC_TIMEOUT_MILLIS);
+        AtomicBoolean finished = new AtomicBoolean();
+        async.addListener(new AsyncListener() {
+            @Override
+            public void onTimeout(AsyncEvent event) {
+                fail(async, finished, HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            }
+
+            @Override
+            public void onError(AsyncEvent event) {
+                if (event.getThrowable() != null) {
+                    event.getThrowable().printStackTrace();
+                }
+                if (finished.compareAndSet(false, true)) {
+                    async.complete();
+                }
+            }
+
+            @Override
+            public void onComplete(AsyncEvent event) {
+            }
+
+            @Override
+            public void onStartAsync(AsyncEvent event) {
+            }
+        });
+        try {
+            DaoExecutor.get().execute(() -> {
+                try {
+                    loadPage(pensionersForm);
+                    if (finished.compareAndSet(false, true)) {
+                        async.dispatch(successPath);
+                    }
+                } catch (DatabaseUnavailableException e) {
+                    // shedding load or circuit open with nothing cached to fall back on
+                    fail(async, finished, HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+                } catch (SQLException e) {
+                    e.printStackTrace();
+                    fail(async, finished, HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+                } catch (Exception e) {
+                    e.printStackTrace();
+                    fail(async, finished, HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            fail(async, finished, HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+        }
+        return null;
+    }
+
+    private static void loadPage(PensionersForm form) throws Exception {
+        PensionersPage page = PensionersCache.getInstance().getPage(form.getPageSize(), form.getAfter(),
+                form.getStatus(), SortColumn.fromParam(form.getSort()), form.isDesc());
+        form.setPensionersData(page.getRows());
+        form.setNextCursor(page.getNextCursor());
+        form.setStale(page.isStale());
+    }
+
+    // Only the side that flips finished may touch the response or complete the context.
+    private static void fail(AsyncContext async, AtomicBoolean finished, int status) {
+        if (!finished.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            HttpServletResponse response = (HttpServletResponse) async.getResponse();
+            if (status == HttpServletResponse.SC_SERVICE_UNAVAILABLE) {
+                response.setHeader("Retry-After", RETRY_AFTER_SECONDS);
+            }
+            response.sendError(status);
+        } catch (Exception ignored) {
+            // response already committed
+        }
+        async.complete();
+    }
 }
@@ -0,0 +1,22 @@
+package com.nssaap.actions;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.struts.action.Action;
+import org.apache.struts.action.ActionForm;
+import org.apache.struts.action.ActionForward;
+import org.apache.struts.action.ActionMapping;
+
+import com.nssaap.report.PensionersReportEngine;
+
+/** Per-scheme staleness and status counts across all states. */
+public class PensionersSummaryAction extends Action {
+
+    @Override
+    public ActionForward execute(ActionMapping mapping, ActionForm form,
+                                 HttpServletRequest request, HttpServletResponse response) throws Exception {
+        request.setAttribute("pensionersSummary", PensionersReportEngine.getInstance().summarize());
+        return mapping.findForward("success");
+    }
+}
@@ -0,0 +1,24 @@
+package com.nssaap.archive;
+
+import com.nssaap.model.PensionerRecord;
+
+/** The six epoch-day columns of a columnar snapshot, in file order. */
+public enum DateColumn {
+    IGNDPS_PENSIONER,
+    IGNOAPS_PENSIONER,
+    IGNWPS_PENSIONER,
+    IGNDPS_TRANSECTION,
+    IGNOAPS_TRANSECTION,
+    IGNWPS_TRANSECTION;
+
+    int of(PensionerRecord r) {
+        switch (this) {
+            case IGNDPS_PENSIONER: return r.getIgndpsPensionerLastUpdate();
+            case IGNOAPS_PENSIONER: return r.getIgnoapsPensionerLastUpdate();
+            case IGNWPS_PENSIONER: return r.getIgnwpsPensionerLastUpdate();
+            case IGNDPS_TRANSECTION: return r.getIgndpsTransectionLastUpdate();
+            case IGNOAPS_TRANSECTION: return r.getIgnoapsTransectionLastUpdate();
+            default: return r.getIgnwpsTransectionLastUpdate();
+        }
+    }
+}
@@ -0,0 +1,231 @@
+package com.nssaap.archive;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.nssaap.model.PensionerRecord;
+
+/**
+ * Memory-mapped reader for snapshots written by {@link PensionersColumnarWriter}.
+ * Only the small dictionary is decoded up front; column values are read straight
+ * from the mapping with absolute gets, so scans allocate nothing per row.
+ */
+public class PensionersColumnarReader implements AutoCloseable {
+    private static final int CODE = 0;
+    private static final int NAME = 1;
+    private static final int SHORT_NAME = 2;
+    private static final int FIRST_DATE = 3;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer buf;
+    private final int rows;
+    private final int snapshotEpochDay;
+    private final String[] dictionary;
+    private final int columnsStart;
+    private final int statusStart;
+    private final int statusCount;
+    private final int words;
+
+    /**
+     * Maps the file and checks every length and dictionary id in it against the file
+     * size, so a truncated or corrupt snapshot fails here with an IOException rather
+     * than with an index error on some later read.
+     */
+    public PensionersColumnarReader(Path file) throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Pensioners columnar snapshot over 2 GB: " + file);
+            }
+            buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            buf.order(ByteOrder.LITTLE_ENDIAN);
+            int capacity = buf.capacity();
+            if (capacity < PensionersColumnarWriter.HEADER_BYTES
+                    || buf.getInt(0) != PensionersColumnarWriter.MAGIC
+                    || buf.getInt(4) != PensionersColumnarWriter.VERSION) {
+                throw new IOException("Not a pensioners columnar snapshot: " + file);
+            }
+            rows = buf.getInt(8);
+            int dictSize = buf.getInt(12);
+            statusCount = buf.getInt(16);
+            snapshotEpochDay = buf.getInt(20);
+            // every dictionary entry takes at least its 4-byte length
+            if (rows < 0 || statusCount < 0 || dictSize < 0
+                    || dictSize > (capacity - PensionersColumnarWriter.HEADER_BYTES) / 4) {
+                throw corrupt(file, "bad header counts");
+            }
+            words = (rows + 63) / 64;
+
+            dictionary = new String[dictSize];
+            int pos = PensionersColumnarWriter.HEADER_BYTES;
+            for (int i = 0; i < dictSize; i++) {
+                if (pos > capacity - 4) {
+                    throw corrupt(file, "dictionary entry " + i + " past the end");
+                }
+                int len = buf.getInt(pos);
+                if (len < 0 || len > capacity - pos - 4) {
+                    throw corrupt(file, "dictionary entry " + i + " has length " + len);
+                }
+                byte[] b = new byte[len];
+                for (int j = 0; j < len; j++) {
+                    b[j] = buf.get(pos + 4 + j);
+                }
+                dictionary[i] = new String(b, StandardCharsets.UTF_8);
+                pos += 4 + len;
+            }
+            long columns = PensionersColumnarWriter.align8(pos);
+            long status = PensionersColumnarWriter.align8(columns + 9 * 4L * rows);
+            if (status + statusCount * (8 + 8L * words) > capacity) {
+                throw new IOException("Truncated pensioners columnar snapshot: " + file);
+            }
+            columnsStart = (int) columns;
+            statusStart = (int) status;
+
+            for (int c = CODE; c < FIRST_DATE; c++) {
+                int base = columnBase(c);
+                for (int i = 0; i < rows; i++) {
+                    checkId(file, buf.getInt(base + 4 * i));
+                }
+            }
+            for (int s = 0; s < statusCount; s++) {
+                checkId(file, buf.getInt(statusBase(s)));
+            }
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private void checkId(Path file, int id) throws IOException {
+        if (id < 0 || id >= dictionary.length) {
+            throw corrupt(file, "dictionary id " + id + " out of range");
+        }
+    }
+
+    private static IOException corrupt(Path file, String problem) {
+        return new IOException("Corrupt pensioners columnar snapshot (" + problem + "): " + file);
+    }
+
+    public int getRowCount() {
+        return rows;
+    }
+
+    public int getSnapshotEpochDay() {
+        return snapshotEpochDay;
+    }
+
+    public String getStateCode(int row) {
+        return dictionary[column(CODE, row)];
+    }
+
+    public String getStateName(int row) {
+        return dictionary[column(NAME, row)];
+    }
+
+    public String getStateShortName(int row) {
+        return dictionary[column(SHORT_NAME, row)];
+    }
+
+    /** Epoch day, or {@link PensionerRecord#NO_DATE}. */
+    public int getDate(DateColumn col, int row) {
+        return column(FIRST_DATE + col.ordinal(), row);
+    }
+
+    /** Bitmap slot for a status value, or -1 if no row has it. */
+    public int statusSlot(String status) {
+        for (int s = 0; s < statusCount; s++) {
+            if (dictionary[buf.getInt(statusBase(s))].equals(status)) {
+                return s;
+            }
+        }
+        return -1;
+    }
+
+    public boolean hasStatus(int slot, int row) {
+        long word = buf.getLong(statusBase(slot) + 8 + 8 * (row >>> 6));
+        return (word & (1L << (row & 63))) != 0;
+    }
+
+    public int countStatus(int slot) {
+        if (slot < 0) {
+            return 0;
+        }
+        int base = statusBase(slot) + 8;
+        int count = 0;
+        for (int w = 0; w < words; w++) {
+            count += Long.bitCount(buf.getLong(base + 8 * w));
+        }
+        return count;
+    }
+
+    /** Largest number of days between a row's date and the snapshot day; -1 if the column is all null. */
+    public int maxLagDays(DateColumn col) {
+        int base = columnBase(FIRST_DATE + col.ordinal());
+        int max = -1;
+        for (int i = 0; i < rows; i++) {
+            int day = buf.getInt(base + 4 * i);
+            if (day != PensionerRecord.NO_DATE) {
+                max = Math.max(max, snapshotEpochDay - day);
+            }
+        }
+        return max;
+    }
+
+    /** Number of states whose date in this snapshot is later than in the older one. */
+    public int countAdvancedSince(PensionersColumnarReader older, DateColumn col) {
+        // Join on dictionary ids: map each of our ids to the older row with that state
+        // code once, so the row loop below only does absolute int reads.
+        Map<String, Integer> olderIds = new HashMap<>(older.dictionary.length * 2);
+        for (int d = 0; d < older.dictionary.length; d++) {
+            olderIds.put(older.dictionary[d], d);
+        }
+        int[] olderRowById = new int[older.dictionary.length];
+        Arrays.fill(olderRowById, -1);
+        int olderCodes = older.columnBase(CODE);
+        for (int j = 0; j < older.rows; j++) {
+            olderRowById[older.buf.getInt(olderCodes + 4 * j)] = j;
+        }
+        int[] olderRow = new int[dictionary.length];
+        for (int d = 0; d < dictionary.length; d++) {
+            Integer id = olderIds.get(dictionary[d]);
+            olderRow[d] = id == null ? -1 : olderRowById[id];
+        }
+
+        int codes = columnBase(CODE);
+        int dates = columnBase(FIRST_DATE + col.ordinal());
+        int olderDates = older.columnBase(FIRST_DATE + col.ordinal());
+        int advanced = 0;
+        for (int i = 0; i < rows; i++) {
+            int j = olderRow[buf.getInt(codes + 4 * i)];
+            if (j >= 0 && buf.getInt(dates + 4 * i) > older.buf.getInt(olderDates + 4 * j)) {
+                advanced++;
+            }
+        }
+        return advanced;
+    }
+
+    private int columnBase(int index) {
+        return columnsStart + index * 4 * rows;
+    }
+
+    private int column(int index, int row) {
+        return buf.getInt(columnBase(index) + 4 * row);
+    }
+
+    private int statusBase(int slot) {
+        return statusStart + slot * (8 + 8 * words);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
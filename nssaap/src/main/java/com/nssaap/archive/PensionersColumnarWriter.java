@@ -0,0 +1,146 @@
+package com.nssaap.archive;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.nssaap.dao.PensionersDAO;
+import com.nssaap.model.PensionerRecord;
+
+/**
+ * Writes a pensioners snapshot in the columnar archive format read by
+ * {@link PensionersColumnarReader}. All values are little-endian:
+ *
+ * <pre>
+ * header      int magic 'NSAC', int version, int rows, int dictSize, int statuses, int snapshotEpochDay
+ * dictionary  dictSize x (int byteLength, UTF-8 bytes)     state codes, names, short names, statuses
+ *             padding to a multiple of 8
+ * columns     int[rows] x 3                                dictionary ids: code, name, short name
+ *             int[rows] x 6                                epoch days in {@link DateColumn} order
+ *             padding to a multiple of 8
+ * statuses    statuses x (int dictId, int pad, long[(rows + 63) / 64] bitmap)
+ * </pre>
+ *
+ * Offsets are ints, so a snapshot that would not fit in 2 GB is refused.
+ */
+public class PensionersColumnarWriter {
+    static final int MAGIC = 0x4E534143; // "NSAC"
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 24;
+
+    public static void main(String[] args) throws Exception {
+        Path dir = Paths.get(args.length > 0 ? args[0] : ".");
+        LocalDate today = LocalDate.now();
+        Path file = dir.resolve("pensioners-" + today + ".col");
+        write(new PensionersDAO().getPensionersData(), (int) today.toEpochDay(), file);
+        System.out.println("Wrote " + file);
+    }
+
+    public static void write(List<PensionerRecord> rows, int snapshotEpochDay, Path file) throws IOException {
+        int n = rows.size();
+        List<String> dictionary = new ArrayList<>();
+        Map<String, Integer> ids = new HashMap<>();
+        int[] code = new int[n];
+        int[] name = new int[n];
+        int[] shortName = new int[n];
+        List<Integer> statusIds = new ArrayList<>();
+        List<long[]> bitmaps = new ArrayList<>();
+        int words = (n + 63) / 64;
+
+        for (int i = 0; i < n; i++) {
+            PensionerRecord r = rows.get(i);
+            code[i] = id(r.getStateCode(), dictionary, ids);
+            name[i] = id(r.getStateName(), dictionary, ids);
+            shortName[i] = id(r.getStateShortName(), dictionary, ids);
+            int status = id(r.getStateStatus(), dictionary, ids);
+            int slot = statusIds.indexOf(status);
+            if (slot < 0) {
+                slot = statusIds.size();
+                statusIds.add(status);
+                bitmaps.add(new long[words]);
+            }
+            bitmaps.get(slot)[i >>> 6] |= 1L << (i & 63);
+        }
+
+        List<byte[]> encoded = new ArrayList<>(dictionary.size());
+        long dictBytes = 0;
+        for (String s : dictionary) {
+            byte[] b = s.getBytes(StandardCharsets.UTF_8);
+            encoded.add(b);
+            dictBytes += 4 + b.length;
+        }
+        long size = align8(align8(HEADER_BYTES + dictBytes) + 9 * 4L * n) + statusIds.size() * (8 + 8L * words);
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("Snapshot of " + n + " rows needs " + size + " bytes, over the 2 GB format limit");
+        }
+        int columnsStart = (int) align8(HEADER_BYTES + dictBytes);
+        int statusStart = (int) align8(columnsStart + 9 * 4L * n);
+
+        ByteBuffer buf = ByteBuffer.allocate((int) size).order(ByteOrder.LITTLE_ENDIAN);
+        buf.putInt(MAGIC).putInt(VERSION).putInt(n).putInt(dictionary.size()).putInt(statusIds.size()).putInt(snapshotEpochDay);
+        for (byte[] b : encoded) {
+            buf.putInt(b.length).put(b);
+        }
+        buf.position(columnsStart);
+        putAll(buf, code);
+        putAll(buf, name);
+        putAll(buf, shortName);
+        for (DateColumn col : DateColumn.values()) {
+            for (PensionerRecord r : rows) {
+                buf.putInt(col.of(r));
+            }
+        }
+        buf.position(statusStart);
+        for (int s = 0; s < statusIds.size(); s++) {
+            buf.putInt(statusIds.get(s)).putInt(0);
+            for (long word : bitmaps.get(s)) {
+                buf.putLong(word);
+            }
+        }
+        buf.flip();
+
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE)) {
+            while (buf.hasRemaining()) {
+                ch.write(buf);
+            }
+            ch.force(true);
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // Nulls share the empty string.
+    private static int id(String value, List<String> dictionary, Map<String, Integer> ids) {
+        String key = value == null ? "" : value;
+        Integer id = ids.get(key);
+        if (id == null) {
+            id = dictionary.size();
+            dictionary.add(key);
+            ids.put(key, id);
+        }
+        return id;
+    }
+
+    private static void putAll(ByteBuffer buf, int[] values) {
+        for (int v : values) {
+            buf.putInt(v);
+        }
+    }
+
+    static long align8(long offset) {
+        return (offset + 7) & ~7L;
+    }
+}
@@ -0,0 +1,83 @@
+package com.nssaap.dao;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.nssaap.model.PensionerRecord;
+
+/**
+ * Maps rows to {@link PensionerRecord}. Queries selecting {@link #PROJECTION} can
+ * use the positional {@link #INSTANCE}; otherwise column indexes are looked up once
+ * per ResultSet, and the state strings (there are only a few dozen distinct values)
+ * share one instance per value.
+ */
+public class PensionerRecordMapper {
+    public static final String PROJECTION = "state_code, state_name, state_short_name,"
+            + " igndps_pensioner_last_update_date, ignoaps_pensioner_last_update_date, ignwps_pensioner_last_update_date,"
+            + " igndps_transection_last_update_date, ignoaps_transection_last_update_date, ignwps_transection_last_update_date,"
+            + " state_status";
+
+    private static final ConcurrentHashMap<String, String> INTERNED = new ConcurrentHashMap<>();
+
+    public static final PensionerRecordMapper INSTANCE = new PensionerRecordMapper();
+
+    private final int stateCode;
+    private final int stateName;
+    private final int stateShortName;
+    private final int igndpsPensioner;
+    private final int ignoapsPensioner;
+    private final int ignwpsPensioner;
+    private final int igndpsTransection;
+    private final int ignoapsTransection;
+    private final int ignwpsTransection;
+    private final int stateStatus;
+
+    private PensionerRecordMapper() {
+        stateCode = 1;
+        stateName = 2;
+        stateShortName = 3;
+        igndpsPensioner = 4;
+        ignoapsPensioner = 5;
+        ignwpsPensioner = 6;
+        igndpsTransection = 7;
+        ignoapsTransection = 8;
+        ignwpsTransection = 9;
+        stateStatus = 10;
+    }
+
+    public PensionerRecordMapper(ResultSet rs) throws SQLException {
+        stateCode = rs.findColumn("state_code");
+        stateName = rs.findColumn("state_name");
+        stateShortName = rs.findColumn("state_short_name");
+        igndpsPensioner = rs.findColumn("igndps_pensioner_last_update_date");
+        ignoapsPensioner = rs.findColumn("ignoaps_pensioner_last_update_date");
+        ignwpsPensioner = rs.findColumn("ignwps_pensioner_last_update_date");
+        igndpsTransection = rs.findColumn("igndps_transection_last_update_date");
+        ignoapsTransection = rs.findColumn("ignoaps_transection_last_update_date");
+        ignwpsTransection = rs.findColumn("ignwps_transection_last_update_date");
+        stateStatus = rs.findColumn("state_status");
+    }
+
+    public PensionerRecord map(ResultSet rs) throws SQLException {
+        return new PensionerRecord(
+                intern(rs.getString(stateCode)),
+                intern(rs.getString(stateName)),
+                intern(rs.getString(stateShortName)),
+                PensionerRecord.parseDate(rs.getString(igndpsPensioner)),
+                PensionerRecord.parseDate(rs.getString(ignoapsPensioner)),
+                PensionerRecord.parseDate(rs.getString(ignwpsPensioner)),
+                PensionerRecord.parseDate(rs.getString(igndpsTransection)),
+                PensionerRecord.parseDate(rs.getString(ignoapsTransection)),
+                PensionerRecord.parseDate(rs.getString(ignwpsTransection)),
+                intern(rs.getString(stateStatus)));
+    }
+
+    private static String intern(String value) {
+        if (value == null) {
+            return null;
+        }
+        String existing = INTERNED.putIfAbsent(value, value);
+        return existing != null ? existing : value;
+    }
+}
@@ -0,0 +1,400 @@
+package com.nssaap.dao;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import com.nssaap.dao.PensionersDAO.SortColumn;
+import com.nssaap.model.PensionerRecord;
+import com.nssaap.model.PensionersPage;
+
+/**
+ * Read-through cache in front of {@link PensionersDAO#getPensionersData()}.
+ *
+ * Fresh data (younger than the TTL) is served from memory. Once it goes stale it is
+ * still served for up to the stale window while one background refresh runs.
+ * Only when nothing usable is cached does the caller wait, and concurrent callers
+ * share a single load. {@link #invalidate()} drops the data, for batch loaders
+ * that have just changed the table. {@link #getPage} serves the paged listing from
+ * the same snapshot, so browsing it costs no query.
+ *
+ * If a load fails (PostgreSQL down, circuit open) the last good data is served,
+ * regardless of age and even after an invalidate, until the database recovers;
+ * pages cut from it are marked stale. As a {@link PensionersChangeListener} it also
+ * patches changed rows into the cached list without a reload.
+ */
+public class PensionersCache implements PensionersChangeListener {
+    private static final long TTL_MILLIS = Long.getLong("nssaap.pensioners.cacheTtlMillis", 60 * 1000L);
+    private static final long STALE_MILLIS = Long.getLong("nssaap.pensioners.cacheStaleMillis", 10 * 60 * 1000L);
+
+    private static final PensionersCache INSTANCE = new PensionersCache(new PensionersDAO()::getPensionersData,
+            TTL_MILLIS, STALE_MILLIS);
+
+    public interface Loader {
+        List<PensionerRecord> load() throws SQLException;
+    }
+
+    private static final class Entry {
+        final List<PensionerRecord> data;
+        final long loadedAtNanos;
+        final long version;
+        // served only because a load failed
+        final boolean stale;
+
+        // Sorted copies of data per (column, direction), built on first use; a race
+        // only builds the same array twice.
+        private final AtomicReferenceArray<PensionerRecord[]> views;
+
+        Entry(List<PensionerRecord> data, long loadedAtNanos, long version) {
+            this(data, loadedAtNanos, version, false, new AtomicReferenceArray<>(SortColumn.values().length * 2));
+        }
+
+        private Entry(List<PensionerRecord> data, long loadedAtNanos, long version, boolean stale,
+                      AtomicReferenceArray<PensionerRecord[]> views) {
+            this.data = data;
+            this.loadedAtNanos = loadedAtNanos;
+            this.version = version;
+            this.stale = stale;
+            this.views = views;
+        }
+
+        Entry asStale() {
+            return new Entry(data, loadedAtNanos, version, true, views);
+        }
+
+        PensionerRecord[] view(SortColumn sort, boolean descending) {
+            int slot = sort.ordinal() * 2 + (descending ? 1 : 0);
+            PensionerRecord[] view = views.get(slot);
+            if (view == null) {
+                view = data.toArray(new PensionerRecord[0]);
+                Arrays.sort(view, sort.order(descending));
+                views.set(slot, view);
+            }
+            return view;
+        }
+
+        PensionerRecord find(String stateCode) {
+            PensionerRecord[] byCode = view(SortColumn.STATE_CODE, false);
+            int i = Arrays.binarySearch(byCode, probe(stateCode), SortColumn.STATE_CODE.order(false));
+            return i >= 0 ? byCode[i] : null;
+        }
+    }
+
+    private final Loader loader;
+    private final long ttlNanos;
+    private final long staleNanos;
+    private final ExecutorService refresher;
+
+    private volatile Entry entry;
+    // Survives invalidate() so an outage can still be answered from it.
+    private volatile Entry lastGood;
+    private final AtomicReference<FutureTask<Entry>> inFlight = new AtomicReference<>();
+    private final AtomicLong generation = new AtomicLong();
+    // Rows onChanges applied while a full load was running; guarded by this.
+    private final List<PensionerRecord> changedDuringLoad = new ArrayList<>();
+    private final AtomicLong versions = new AtomicLong();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong staleHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong loads = new AtomicLong();
+    private final AtomicLong loadFailures = new AtomicLong();
+    private final AtomicLong loadNanos = new AtomicLong();
+    private final AtomicLong staleOnError = new AtomicLong();
+
+    public PensionersCache(Loader loader, long ttlMillis, long staleMillis) {
+        this.loader = loader;
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+        this.staleNanos = TimeUnit.MILLISECONDS.toNanos(staleMillis);
+        this.refresher = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "nssaap-cache-refresh");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    public static PensionersCache getInstance() {
+        return INSTANCE;
+    }
+
+    public List<PensionerRecord> get() throws SQLException {
+        return current().data;
+    }
+
+    /**
+     * The newest data held, however old, without ever waiting for a load; null if
+     * nothing has loaded yet. Expired data starts a background refresh. For callers
+     * that only need to know whether what they last saw is still current.
+     */
+    public List<PensionerRecord> peek() {
+        Entry e = entry;
+        if (e == null) {
+            e = lastGood;
+            if (e == null) {
+                return null;
+            }
+            startLoad(true);
+        } else if (System.nanoTime() - e.loadedAtNanos >= ttlNanos) {
+            startLoad(true);
+        }
+        return e.data;
+    }
+
+    /**
+     * One page of the listing cut from the cached data, with the same order and cursor
+     * rules as {@link PensionersDAO#getPensionersPage}.
+     */
+    public PensionersPage getPage(int pageSize, String afterStateCode, String status,
+                                  SortColumn sort, boolean descending) throws SQLException {
+        Entry e = current();
+        int limit = PensionersDAO.clampPageSize(pageSize);
+        PensionerRecord[] view = e.view(sort, descending);
+        int from = 0;
+        if (afterStateCode != null && !afterStateCode.isEmpty()) {
+            PensionerRecord cursor = e.find(afterStateCode);
+            if (cursor == null) {
+                if (sort != SortColumn.STATE_CODE) {
+                    // unknown cursor: nothing sorts after it
+                    return new PensionersPage(new ArrayList<PensionerRecord>(), null, e.stale);
+                }
+                cursor = probe(afterStateCode);
+            }
+            int i = Arrays.binarySearch(view, cursor, sort.order(descending));
+            from = i >= 0 ? i + 1 : -i - 1;
+        }
+        boolean filtered = status != null && !status.isEmpty();
+        List<PensionerRecord> rows = new ArrayList<>(Math.min(limit + 1, view.length - from));
+        for (int i = from; i < view.length && rows.size() <= limit; i++) {
+            if (!filtered || status.equals(view[i].getStateStatus())) {
+                rows.add(view[i]);
+            }
+        }
+        String next = null;
+        if (rows.size() > limit) {
+            rows.remove(limit);
+            next = rows.get(limit - 1).getStateCode();
+        }
+        return new PensionersPage(rows, next, e.stale);
+    }
+
+    private Entry current() throws SQLException {
+        Entry e = entry;
+        if (e != null) {
+            long age = System.nanoTime() - e.loadedAtNanos;
+            if (age < ttlNanos) {
+                hits.incrementAndGet();
+                return e;
+            }
+            if (age < ttlNanos + staleNanos) {
+                staleHits.incrementAndGet();
+                startLoad(true);
+                return e;
+            }
+        }
+        misses.incrementAndGet();
+        try {
+            return await(startLoad(false));
+        } catch (SQLException ex) {
+            Entry last = entry != null ? entry : lastGood;
+            if (last == null) {
+                throw ex;
+            }
+            staleOnError.incrementAndGet();
+            return last.asStale();
+        }
+    }
+
+    /** Starts a background reload without waiting for it. */
+    public void refresh() {
+        startLoad(true);
+    }
+
+    public synchronized void invalidate() {
+        generation.incrementAndGet();
+        entry = null;
+        inFlight.set(null);
+    }
+
+    /**
+     * Replaces rows by state_code (appending new states). The entry keeps the time of
+     * its last full load, so the TTL still forces a reload that reconciles deletes
+     * and anything the change feed missed. Rows arriving while a full load runs are
+     * replayed over its result.
+     */
+    @Override
+    public synchronized void onChanges(List<PensionerRecord> changed) {
+        if (changed.isEmpty()) {
+            return;
+        }
+        if (inFlight.get() != null) {
+            changedDuringLoad.addAll(changed);
+        }
+        Entry e = entry;
+        if (e == null) {
+            return;
+        }
+        entry = new Entry(merge(e.data, changed), e.loadedAtNanos, versions.incrementAndGet());
+        lastGood = entry;
+    }
+
+    /** Stops the background refresher; later refreshes run on the caller's thread. */
+    public void shutdown() {
+        refresher.shutdownNow();
+    }
+
+    /** Increments each time a load installs new data; zero while nothing is cached. */
+    public long getVersion() {
+        Entry e = entry;
+        return e == null ? 0 : e.version;
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getStaleHits() {
+        return staleHits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getLoads() {
+        return loads.get();
+    }
+
+    /** Requests answered with expired data because the reload failed. */
+    public long getStaleOnError() {
+        return staleOnError.get();
+    }
+
+    public long getLoadFailures() {
+        return loadFailures.get();
+    }
+
+    public double getAverageLoadMillis() {
+        long n = loads.get();
+        return n == 0 ? 0 : loadNanos.get() / 1e6 / n;
+    }
+
+    private FutureTask<Entry> startLoad(boolean async) {
+        while (true) {
+            FutureTask<Entry> task = inFlight.get();
+            if (task != null) {
+                return task;
+            }
+            long gen = generation.get();
+            FutureTask<Entry> created = new FutureTask<>(() -> load(gen));
+            if (inFlight.compareAndSet(null, created)) {
+                Runnable run = () -> {
+                    try {
+                        created.run();
+                    } finally {
+                        inFlight.compareAndSet(created, null);
+                    }
+                };
+                if (async) {
+                    try {
+                        refresher.execute(run);
+                    } catch (RejectedExecutionException ex) {
+                        run.run();
+                    }
+                } else {
+                    run.run();
+                }
+                return created;
+            }
+        }
+    }
+
+    private Entry load(long gen) throws SQLException {
+        synchronized (this) {
+            changedDuringLoad.clear();
+        }
+        long start = System.nanoTime();
+        List<PensionerRecord> data;
+        try {
+            data = Collections.unmodifiableList(loader.load());
+        } catch (SQLException | RuntimeException e) {
+            loadFailures.incrementAndGet();
+            throw e;
+        }
+        long end = System.nanoTime();
+        loads.incrementAndGet();
+        loadNanos.addAndGet(end - start);
+
+        // An invalidate() while this load ran means the result may predate it, so hand
+        // it to the waiting callers but do not keep it. Changes applied meanwhile may
+        // be missing from what was read, so they go on top.
+        synchronized (this) {
+            if (generation.get() != gen) {
+                return new Entry(data, end, 0);
+            }
+            if (!changedDuringLoad.isEmpty()) {
+                data = merge(data, changedDuringLoad);
+                changedDuringLoad.clear();
+            }
+            Entry loaded = new Entry(data, end, versions.incrementAndGet());
+            entry = loaded;
+            lastGood = loaded;
+            return loaded;
+        }
+    }
+
+    private static List<PensionerRecord> merge(List<PensionerRecord> data, List<PensionerRecord> changed) {
+        List<PensionerRecord> merged = new ArrayList<>(data);
+        Map<String, Integer> index = new HashMap<>(merged.size() * 2);
+        for (int i = 0; i < merged.size(); i++) {
+            index.put(merged.get(i).getStateCode(), i);
+        }
+        for (PensionerRecord r : changed) {
+            Integer i = index.get(r.getStateCode());
+            if (i != null) {
+                merged.set(i, r);
+            } else {
+                index.put(r.getStateCode(), merged.size());
+                merged.add(r);
+            }
+        }
+        return Collections.unmodifiableList(merged);
+    }
+
+    // Sorts by state_code alone, which is all a cursor lookup compares.
+    private static PensionerRecord probe(String stateCode) {
+        int none = PensionerRecord.NO_DATE;
+        return new PensionerRecord(stateCode, null, null, none, none, none, none, none, none, null);
+    }
+
+    private static Entry await(FutureTask<Entry> task) throws SQLException {
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while loading pensioners data", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof SQLException) {
+                throw (SQLException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new SQLException(cause);
+        }
+    }
+}
@@ -0,0 +1,213 @@
+package com.nssaap.dao;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+
+import com.nssaap.model.PensionerRecord;
+import com.nssaap.model.PensionersChangeSet;
+import com.nssaap.utils.DBConnection;
+
+/**
+ * Pushes changed pensioner rows to in-process subscribers.
+ *
+ * A background thread holds one connection per shard primary that LISTENs on
+ * pensioners_changed (sent by the trigger in sql/pensioners_change_feed.sql). Each
+ * tick it drains every shard's notifications and only for shards that had any does
+ * it ask {@link PensionersDAO#getPensionersChangedSince} for rows past that shard's
+ * watermark, so a refresh costs in proportion to the number of changes. Watermarks
+ * are kept per shard because each shard has its own clock and commit lag; one shared
+ * watermark would let a lagging shard's rows fall behind it. Without notifications
+ * (e.g. LISTEN failed) every shard is still polled every FALLBACK_POLL_MILLIS.
+ *
+ * The query starts OVERLAP_MILLIS (5 s) before the watermark to pick up rows from
+ * transactions that committed late; listeners must therefore apply rows idempotently.
+ * updated_at is stamped when the row is written, not when its transaction commits, so
+ * a transaction that commits more than 5 s after writing can land behind a watermark
+ * that has already moved on. The feed never sees those rows; only the cache's TTL
+ * reload reconciles them.
+ *
+ * The first tick checks every shard for the updated_at column. If
+ * sql/pensioners_change_feed.sql has not been applied, the feed logs that once and
+ * stops; the cache then relies on its TTL alone.
+ */
+public class PensionersChangeFeed {
+    private static final String CHANNEL = "pensioners_changed";
+    private static final long TICK_MILLIS = Long.getLong("nssaap.changeFeed.tickMillis", 2000L);
+    private static final long FALLBACK_POLL_MILLIS = 60 * 1000;
+    private static final long OVERLAP_MILLIS = 5000;
+    private static final Log LOG = LogFactory.getLog(PensionersChangeFeed.class);
+
+    private static final PensionersChangeFeed INSTANCE = new PensionersChangeFeed(new PensionersDAO());
+
+    private final PensionersDAO dao;
+    private final List<PensionersChangeListener> listeners = new CopyOnWriteArrayList<>();
+    private ScheduledExecutorService scheduler;
+    private ScheduledFuture<?> task;
+
+    // Per shard, only touched on the scheduler thread.
+    private Connection[] listenConnections;
+    private Timestamp[] watermarks;
+    private long lastPollNanos;
+    private boolean schemaChecked;
+
+    public PensionersChangeFeed(PensionersDAO dao) {
+        this.dao = dao;
+    }
+
+    public static PensionersChangeFeed getInstance() {
+        return INSTANCE;
+    }
+
+    public void subscribe(PensionersChangeListener listener) {
+        listeners.add(listener);
+    }
+
+    public void unsubscribe(PensionersChangeListener listener) {
+        listeners.remove(listener);
+    }
+
+    public synchronized void start() {
+        if (scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "nssaap-change-feed");
+            t.setDaemon(true);
+            return t;
+        });
+        task = scheduler.scheduleWithFixedDelay(this::tick, 0, TICK_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void stop() {
+        if (scheduler == null) {
+            return;
+        }
+        task.cancel(false);
+        scheduler.execute(this::closeListenConnections);
+        scheduler.shutdown();
+        scheduler = null;
+    }
+
+    private void tick() {
+        int shards = DBConnection.getShardCount();
+        if (!schemaChecked) {
+            try {
+                for (int shard = 0; shard < shards; shard++) {
+                    if (!dao.hasChangeTracking(shard)) {
+                        LOG.warn("Change feed disabled: shard " + shard + " has no updated_at column;"
+                                + " apply sql/pensioners_change_feed.sql to enable it");
+                        stop();
+                        return;
+                    }
+                }
+            } catch (SQLException e) {
+                // database not reachable yet; check again next tick
+                return;
+            }
+            schemaChecked = true;
+        }
+        if (watermarks == null) {
+            watermarks = new Timestamp[shards];
+            listenConnections = new Connection[shards];
+            lastPollNanos = System.nanoTime();
+        }
+        boolean fallbackDue = System.nanoTime() - lastPollNanos > TimeUnit.MILLISECONDS.toNanos(FALLBACK_POLL_MILLIS);
+        if (fallbackDue) {
+            lastPollNanos = System.nanoTime();
+        }
+        List<PensionerRecord> changed = new ArrayList<>();
+        for (int shard = 0; shard < shards; shard++) {
+            try {
+                pollShard(shard, fallbackDue, changed);
+            } catch (Exception e) {
+                // the other shards carry on; this one catches up once LISTEN is back
+                LOG.warn("Change feed poll of shard " + shard + " failed: " + e);
+                closeListenConnection(shard);
+            }
+        }
+        if (!changed.isEmpty()) {
+            for (PensionersChangeListener listener : listeners) {
+                try {
+                    listener.onChanges(changed);
+                } catch (RuntimeException e) {
+                    LOG.error("Change listener failed", e);
+                }
+            }
+        }
+    }
+
+    private void pollShard(int shard, boolean fallbackDue, List<PensionerRecord> changed) throws SQLException {
+        if (watermarks[shard] == null) {
+            watermarks[shard] = dao.getPensionersChangedSince(shard, null).getWatermark();
+        }
+        if (!drainNotifications(shard) && !fallbackDue) {
+            return;
+        }
+        Timestamp watermark = watermarks[shard];
+        PensionersChangeSet changes = dao.getPensionersChangedSince(shard,
+                new Timestamp(watermark.getTime() - OVERLAP_MILLIS));
+        if (changes.getWatermark() != null && changes.getWatermark().after(watermark)) {
+            watermarks[shard] = changes.getWatermark();
+        }
+        changed.addAll(changes.getRows());
+    }
+
+    private boolean drainNotifications(int shard) throws SQLException {
+        Connection conn = listenConnections[shard];
+        if (conn == null) {
+            conn = DBConnection.getShardConnection(shard);
+            listenConnections[shard] = conn;
+            try (Statement st = conn.createStatement()) {
+                st.execute("LISTEN " + CHANNEL);
+            }
+            // Anything that happened before LISTEN was registered is caught by this poll.
+            return true;
+        }
+        // The driver only reads notifications off the socket while running a query.
+        try (Statement st = conn.createStatement()) {
+            st.execute("SELECT 1");
+        }
+        PGNotification[] notifications = conn.unwrap(PGConnection.class).getNotifications();
+        return notifications != null && notifications.length > 0;
+    }
+
+    private void closeListenConnections() {
+        if (listenConnections != null) {
+            for (int shard = 0; shard < listenConnections.length; shard++) {
+                closeListenConnection(shard);
+            }
+        }
+    }
+
+    private void closeListenConnection(int shard) {
+        Connection conn = listenConnections[shard];
+        if (conn != null) {
+            // The connection goes back to the pool, where it must not keep collecting notifications.
+            try (Statement st = conn.createStatement()) {
+                st.execute("UNLISTEN *");
+            } catch (SQLException ignored) {
+                // a broken connection is discarded by the pool
+            }
+            try {
+                conn.close();
+            } catch (SQLException ignored) {
+                // being replaced anyway
+            }
+            listenConnections[shard] = null;
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package com.nssaap.dao;
+
+import java.util.List;
+
+import com.nssaap.model.PensionerRecord;
+
+/** Receives rows the {@link PensionersChangeFeed} found changed; a row may be delivered more than once. */
+public interface PensionersChangeListener {
+    void onChanges(List<PensionerRecord> changed);
+}
@@ -1,34 +1,331 @@
 package com.nssaap.dao;
+import java.io.IOException;
 import java.sql.*;
 import java.util.*;
+import java.util.function.Function;
 
+import com.nssaap.metrics.QueryMetrics;
+import com.nssaap.model.PensionerRecord;
+import com.nssaap.model.PensionersChangeSet;
+import com.nssaap.model.PensionersPage;
+import com.nssaap.utils.CircuitBreaker;
 import com.nssaap.utils.DBConnection;
+import com.nssaap.utils.DatabaseUnavailableException;
+import com.nssaap.utils.DbGuard;
+import com.nssaap.utils.ShardScatter;
+
+/**
+ * Request-path queries run through {@link DbGuard}, so while PostgreSQL is down or
+ * saturated they fail fast with {@link com.nssaap.utils.DatabaseUnavailableException}
+ * instead of tying up threads; every failure reaches the caller as an SQLException.
+ *
+ * Listings and pages are read-only and use replica connections. When the table is
+ * sharded by state_code (see {@link DBConnection}) they query every shard and merge.
+ */
 public class PensionersDAO {
-    public List<Map<String, String>> getPensionersData() {
-        List<Map<String, String>> dataList = new ArrayList<>();
-        String query = "SELECT * FROM pensioners_transections_last_update_details";
-        
-        try (Connection conn = DBConnection.getConnection();
-             PreparedStatement ps = conn.prepareStatement(query);
-             ResultSet rs = ps.executeQuery()) {
-            
-            while (rs.next()) {
-                Map<String, String> row = new HashMap<>();
-                row.put("state_code", rs.getString("state_code"));
-                row.put("state_name", rs.getString("state_name"));
-                row.put("state_short_name", rs.getString("state_short_name"));
-                row.put("igndps_pensioner_last_update_date", rs.getString("igndps_pensioner_last_update_date"));
-                row.put("ignoaps_pensioner_last_update_date", rs.getString("ignoaps_pensioner_last_update_date"));
-                row.put("ignwps_pensioner_last_update_date", rs.getString("ignwps_pensioner_last_update_date"));
-                row.put("igndps_transection_last_update_date", rs.getString("igndps_transection_last_update_date"));
-                row.put("ignoaps_transection_last_update_date", rs.getString("ignoaps_transection_last_update_date"));
-                row.put("ignwps_transection_last_update_date", rs.getString("ignwps_transection_last_update_date"));
-                row.put("state_status", rs.getString("state_status"));
-                dataList.add(row);
-            }
-        } catch (Exception e) {
-            e.printStackTrace();
+    private static final String TABLE = "pensioners_transections_last_update_details";
+    private static final String QUERY = "SELECT " + PensionerRecordMapper.PROJECTION + " FROM " + TABLE;
+    private static final String CHANGES_QUERY = "SELECT " + PensionerRecordMapper.PROJECTION + ", updated_at FROM "
+            + TABLE + " WHERE updated_at > ? ORDER BY updated_at";
+    private static final int UPDATED_AT_COLUMN = 11;
+    // Rows PostgreSQL sends per round trip once the cursor is open.
+    private static final int FETCH_SIZE = 500;
+    public static final int MAX_PAGE_SIZE = 500;
+    private static final int QUERY_TIMEOUT_SECONDS = 15;
+
+    /**
+     * Columns the listing may be sorted by; state_code breaks ties so the order is total.
+     * Values compare in byte order (COLLATE "C" in SQL, String.compareTo here) and
+     * NULLs sort last in both directions, so database pages, merged shard pages and
+     * pages of the cached snapshot all agree.
+     */
+    public enum SortColumn {
+        STATE_CODE("state_code", PensionerRecord::getStateCode),
+        STATE_NAME("state_name", PensionerRecord::getStateName),
+        STATE_STATUS("state_status", PensionerRecord::getStateStatus);
+
+        private final String column;
+        private final Comparator<PensionerRecord> ascending;
+        private final Comparator<PensionerRecord> descending;
+
+        SortColumn(String column, Function<PensionerRecord, String> key) {
+            this.column = column;
+            this.ascending = Comparator.comparing(key, Comparator.nullsLast(Comparator.<String>naturalOrder()))
+                    .thenComparing(PensionerRecord::getStateCode);
+            this.descending = Comparator.comparing(key, Comparator.nullsLast(Comparator.<String>reverseOrder()))
+                    .thenComparing(PensionerRecord::getStateCode, Comparator.reverseOrder());
+        }
+
+        public String getColumn() {
+            return column;
+        }
+
+        public Comparator<PensionerRecord> order(boolean descending) {
+            return descending ? this.descending : ascending;
         }
+
+        public static SortColumn fromParam(String param) {
+            for (SortColumn c : values()) {
+                if (c.column.equalsIgnoreCase(param) || c.name().equalsIgnoreCase(param)) {
+                    return c;
+                }
+            }
+            return STATE_CODE;
+        }
+    }
+
+    public List<PensionerRecord> getPensionersData() throws SQLException {
+        if (DBConnection.getShardCount() > 1) {
+            // scatter-gather: every shard streams into its own list in parallel
+            List<List<PensionerRecord>> parts = DbGuard.getInstance().call(() -> ShardScatter.gather(shard -> {
+                List<PensionerRecord> part = new ArrayList<>();
+                try {
+                    streamShard(shard, part::add);
+                } catch (IOException e) {
+                    throw new IllegalStateException(e);
+                }
+                return part;
+            }));
+            int size = 0;
+            for (List<PensionerRecord> part : parts) {
+                size += part.size();
+            }
+            List<PensionerRecord> dataList = new ArrayList<>(size);
+            for (List<PensionerRecord> part : parts) {
+                dataList.addAll(part);
+            }
+            return dataList;
+        }
+        List<PensionerRecord> dataList = new ArrayList<>();
+        DbGuard.getInstance().call(() -> {
+            try {
+                streamShard(0, dataList::add);
+            } catch (IOException e) {
+                // the collecting handler never writes anywhere
+                throw new IllegalStateException(e);
+            }
+            return null;
+        });
         return dataList;
     }
-}
\ No newline at end of file
+
+    /**
+     * Hands rows to the handler one at a time. PostgreSQL only uses a server-side
+     * cursor when auto-commit is off and a fetch size is set; otherwise the driver
+     * buffers the whole result before returning the first row. Shards are read one
+     * after another so the handler sees a single ordered stream.
+     *
+     * The stream does not run inside {@link DbGuard}: the handler may be writing to a
+     * slow client, and that must not hold a bulkhead slot for the whole response. It
+     * still fails fast while the circuit is not closed, and every statement of the
+     * stream, each cursor fetch included, is bounded by its own statement_timeout.
+     * The connection is held until the handler has seen the last row, so request
+     * paths should page from {@link PensionersCache} instead.
+     */
+    public void streamPensionersData(PensionersRowHandler handler) throws SQLException, IOException {
+        if (DbGuard.getInstance().getCircuitState() != CircuitBreaker.State.CLOSED) {
+            throw new DatabaseUnavailableException(DatabaseUnavailableException.Reason.CIRCUIT_OPEN,
+                    "Database circuit is open; failing fast");
+        }
+        for (int shard = 0; shard < DBConnection.getShardCount(); shard++) {
+            streamShard(shard, handler);
+        }
+    }
+
+    private static void streamShard(int shard, PensionersRowHandler handler) throws SQLException, IOException {
+        try (Connection conn = DBConnection.getShardReadConnection(shard)) {
+            conn.setAutoCommit(false);
+            try (Statement st = conn.createStatement()) {
+                // server-side, so it also bounds the cursor fetches after the first
+                st.execute("SET LOCAL statement_timeout = " + QUERY_TIMEOUT_SECONDS * 1000);
+            }
+            try (PreparedStatement ps = conn.prepareStatement(QUERY)) {
+                ps.setFetchSize(FETCH_SIZE);
+                ps.setQueryTimeout(QUERY_TIMEOUT_SECONDS);
+                try (ResultSet rs = ps.executeQuery()) {
+                    PensionerRecordMapper mapper = PensionerRecordMapper.INSTANCE;
+                    long mapNanos = 0;
+                    while (rs.next()) {
+                        long start = System.nanoTime();
+                        PensionerRecord row = mapper.map(rs);
+                        mapNanos += System.nanoTime() - start;
+                        handler.handleRow(row);
+                    }
+                    QueryMetrics.getInstance().recordMap(mapNanos);
+                }
+            }
+            conn.commit();
+        }
+    }
+
+    /**
+     * Keyset pagination straight from the database: the page starts after the row
+     * whose state_code is the cursor, comparing (sort column, state_code) so the cost
+     * does not depend on how deep the page is. Fetches one extra row to know whether
+     * another page follows. The listing action pages the cached snapshot instead
+     * (see {@link PensionersCache#getPage}), in the same order.
+     *
+     * The cursor row's sort value is looked up first and bound as a literal, so a
+     * NULL value can take the IS NULL branch and every shard gets the same predicate.
+     * Sharded, each shard returns its own first limit + 1 rows and the merged,
+     * re-sorted head is the page.
+     */
+    public PensionersPage getPensionersPage(int pageSize, String afterStateCode, String status,
+                                            SortColumn sort, boolean descending) throws SQLException {
+        int limit = clampPageSize(pageSize);
+        boolean sharded = DBConnection.getShardCount() > 1;
+        boolean hasCursor = afterStateCode != null && !afterStateCode.isEmpty();
+        List<PensionerRecord> rows = DbGuard.getInstance().call(() -> {
+            String[] cursor = null;
+            if (hasCursor && sort != SortColumn.STATE_CODE) {
+                cursor = lookupSortValue(sort, afterStateCode);
+                if (cursor == null) {
+                    // unknown cursor: nothing sorts after it
+                    return new ArrayList<PensionerRecord>();
+                }
+            }
+            List<String> params = new ArrayList<>(4);
+            String sql = pageQuery(sort, descending, status, hasCursor ? afterStateCode : null, cursor, params);
+            if (!sharded) {
+                return queryPage(0, sql, limit, params);
+            }
+            List<PensionerRecord> merged = new ArrayList<>();
+            for (List<PensionerRecord> part : ShardScatter.gather(shard -> queryPage(shard, sql, limit, params))) {
+                merged.addAll(part);
+            }
+            merged.sort(sort.order(descending));
+            return merged.size() > limit + 1 ? new ArrayList<>(merged.subList(0, limit + 1)) : merged;
+        });
+        String next = null;
+        if (rows.size() > limit) {
+            rows.remove(limit);
+            next = rows.get(limit - 1).getStateCode();
+        }
+        return new PensionersPage(rows, next);
+    }
+
+    static int clampPageSize(int pageSize) {
+        return Math.max(1, Math.min(pageSize, MAX_PAGE_SIZE));
+    }
+
+    /**
+     * Builds the page query and collects its parameters, all but the LIMIT. cursor is
+     * the cursor row's sort value as looked up by {@link #lookupSortValue}; it is only
+     * needed when sorting by something other than state_code. Every comparison is
+     * COLLATE "C", which only the indexes in sql/pensioners_keyset_indexes.sql can serve.
+     */
+    private static String pageQuery(SortColumn sort, boolean descending, String status, String afterStateCode,
+                                    String[] cursor, List<String> params) {
+        String cmp = descending ? " < " : " > ";
+        String dir = descending ? " DESC" : "";
+        String code = "state_code COLLATE \"C\"";
+        String col = sort.getColumn() + " COLLATE \"C\"";
+        StringBuilder sql = new StringBuilder(QUERY).append(" WHERE 1 = 1");
+        if (status != null && !status.isEmpty()) {
+            sql.append(" AND state_status = ?");
+            params.add(status);
+        }
+        if (afterStateCode != null) {
+            if (sort == SortColumn.STATE_CODE) {
+                sql.append(" AND ").append(code).append(cmp).append("?");
+            } else if (cursor[0] != null) {
+                // NULLs sort after every value, so they always follow a non-NULL cursor
+                sql.append(" AND (").append(col).append(cmp).append("?")
+                   .append(" OR (").append(col).append(" = ? AND ").append(code).append(cmp).append("?)")
+                   .append(" OR ").append(col).append(" IS NULL)");
+                params.add(cursor[0]);
+                params.add(cursor[0]);
+            } else {
+                sql.append(" AND ").append(col).append(" IS NULL AND ").append(code).append(cmp).append("?");
+            }
+            params.add(afterStateCode);
+        }
+        sql.append(" ORDER BY ");
+        if (sort != SortColumn.STATE_CODE) {
+            sql.append(col).append(dir).append(" NULLS LAST, ");
+        }
+        sql.append(code).append(dir).append(" LIMIT ?");
+        return sql.toString();
+    }
+
+    private List<PensionerRecord> queryPage(int shard, String sql, int limit, List<String> params)
+            throws SQLException {
+        List<PensionerRecord> rows = new ArrayList<>(limit + 1);
+        try (Connection conn = DBConnection.getShardReadConnection(shard);
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setQueryTimeout(QUERY_TIMEOUT_SECONDS);
+            int i = 1;
+            for (String param : params) {
+                ps.setString(i++, param);
+            }
+            ps.setInt(i, limit + 1);
+            try (ResultSet rs = ps.executeQuery()) {
+                PensionerRecordMapper mapper = PensionerRecordMapper.INSTANCE;
+                long start = System.nanoTime();
+                while (rs.next()) {
+                    rows.add(mapper.map(rs));
+                }
+                QueryMetrics.getInstance().recordMap(System.nanoTime() - start);
+            }
+        }
+        return rows;
+    }
+
+    /** The row's sort value as a one-element array (the element may be null), or null when there is no such row. */
+    private static String[] lookupSortValue(SortColumn sort, String stateCode) throws SQLException {
+        try (Connection conn = DBConnection.getReadConnection(stateCode);
+             PreparedStatement ps = conn.prepareStatement(
+                     "SELECT " + sort.getColumn() + " FROM " + TABLE + " WHERE state_code = ?")) {
+            ps.setQueryTimeout(QUERY_TIMEOUT_SECONDS);
+            ps.setString(1, stateCode);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? new String[] {rs.getString(1)} : null;
+            }
+        }
+    }
+
+    /**
+     * Rows on one shard whose updated_at (maintained by the trigger in
+     * sql/pensioners_change_feed.sql) is after the watermark, oldest first. A null
+     * watermark returns nothing but the shard's current high-water mark, for
+     * subscribers that already hold a full load. Shards advance independently, so
+     * callers keep one watermark per shard. Reads the primary: a lagging replica
+     * could hide rows the watermark then skips.
+     */
+    /** Whether sql/pensioners_change_feed.sql has been applied on the shard, i.e. the table has updated_at. */
+    public boolean hasChangeTracking(int shard) throws SQLException {
+        try (Connection conn = DBConnection.getShardConnection(shard);
+             PreparedStatement ps = conn.prepareStatement("SELECT 1 FROM information_schema.columns"
+                     + " WHERE table_schema = current_schema() AND table_name = ? AND column_name = 'updated_at'")) {
+            ps.setString(1, TABLE);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next();
+            }
+        }
+    }
+
+    public PensionersChangeSet getPensionersChangedSince(int shard, Timestamp watermark) throws SQLException {
+        List<PensionerRecord> rows = new ArrayList<>();
+        Timestamp latest = watermark;
+        try (Connection conn = DBConnection.getShardConnection(shard)) {
+            if (watermark == null) {
+                try (PreparedStatement ps = conn.prepareStatement("SELECT max(updated_at) FROM " + TABLE);
+                     ResultSet rs = ps.executeQuery()) {
+                    latest = rs.next() ? rs.getTimestamp(1) : null;
+                }
+                return new PensionersChangeSet(rows, latest != null ? latest : new Timestamp(0));
+            }
+            try (PreparedStatement ps = conn.prepareStatement(CHANGES_QUERY)) {
+                ps.setTimestamp(1, watermark);
+                try (ResultSet rs = ps.executeQuery()) {
+                    PensionerRecordMapper mapper = PensionerRecordMapper.INSTANCE;
+                    while (rs.next()) {
+                        rows.add(mapper.map(rs));
+                        latest = rs.getTimestamp(UPDATED_AT_COLUMN);
+                    }
+                }
+            }
+        }
+        return new PensionersChangeSet(rows, latest);
+    }
+}
@@ -0,0 +1,12 @@
+package com.nssaap.dao;
+
+import java.io.IOException;
+import com.nssaap.model.PensionerRecord;
+
+/**
+ * Callback for {@link PensionersDAO#streamPensionersData(PensionersRowHandler)}.
+ * Each row is handed over as soon as it is read from the cursor.
+ */
+public interface PensionersRowHandler {
+    void handleRow(PensionerRecord row) throws IOException;
+}
@@ -1,18 +1,116 @@
 package com.nssaap.forms;
 
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
 import java.util.List;
-import java.util.Map;
 
 import org.apache.struts.action.ActionForm;
 
+import com.nssaap.model.PensionerRecord;
+
 public class PensionersForm extends ActionForm {
-    private List<Map<String, String>> pensionersData;
+    public static final int DEFAULT_PAGE_SIZE = 50;
+
+    private List<PensionerRecord> pensionersData;
+
+    // Paging request parameters, populated by Struts.
+    private int pageSize = DEFAULT_PAGE_SIZE;
+    private String after;
+    private String status;
+    private String sort;
+    private boolean desc;
 
-    public List<Map<String, String>> getPensionersData() {
+    private String nextCursor;
+    private boolean stale;
+
+    public List<PensionerRecord> getPensionersData() {
         return pensionersData;
     }
 
-    public void setPensionersData(List<Map<String, String>> pensionersData) {
+    public void setPensionersData(List<PensionerRecord> pensionersData) {
         this.pensionersData = pensionersData;
     }
+
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    public void setPageSize(int pageSize) {
+        this.pageSize = pageSize;
+    }
+
+    public String getAfter() {
+        return after;
+    }
+
+    public void setAfter(String after) {
+        this.after = after;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public String getSort() {
+        return sort;
+    }
+
+    public void setSort(String sort) {
+        this.sort = sort;
+    }
+
+    public boolean isDesc() {
+        return desc;
+    }
+
+    public void setDesc(boolean desc) {
+        this.desc = desc;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+
+    public boolean isStale() {
+        return stale;
+    }
+
+    public void setStale(boolean stale) {
+        this.stale = stale;
+    }
+
+    /** Query string for the page after this one, or null on the last page. */
+    public String getNextPageQuery() {
+        if (nextCursor == null) {
+            return null;
+        }
+        StringBuilder q = new StringBuilder();
+        q.append("pageSize=").append(pageSize).append("&after=").append(encode(nextCursor));
+        if (status != null && !status.isEmpty()) {
+            q.append("&status=").append(encode(status));
+        }
+        if (sort != null && !sort.isEmpty()) {
+            q.append("&sort=").append(encode(sort));
+        }
+        if (desc) {
+            q.append("&desc=true");
+        }
+        return q.toString();
+    }
+
+    private static String encode(String value) {
+        try {
+            return URLEncoder.encode(value, "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
 }
@@ -0,0 +1,351 @@
+package com.nssaap.ingest;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.postgresql.PGConnection;
+
+import com.nssaap.utils.DBConnection;
+
+/**
+ * Loads a state feed CSV into pensioners_transections_last_update_details.
+ *
+ * A reader thread parses and validates lines and hands fixed-size batches through
+ * a small bounded queue to the writer, which upserts each batch in its own
+ * transaction, either by COPY into a temp staging table followed by
+ * INSERT ... SELECT ... ON CONFLICT, or by multi-row INSERT ... ON CONFLICT.
+ * After every committed batch the last line number is written to
+ * &lt;file&gt;.checkpoint; a rerun after a crash skips up to that line. Upserts are
+ * idempotent, so a batch replayed after a crash between commit and checkpoint is harmless.
+ * With state_code sharding each batch is split and committed shard by shard on the
+ * owning primaries; the checkpoint only moves once every shard has committed.
+ *
+ * This runs in its own JVM, so it cannot reach the webapp's cache. It does not need
+ * to: every upserted row fires the trigger in sql/pensioners_change_feed.sql, whose
+ * pensioners_changed notification makes the webapp's change feed pull the new rows.
+ *
+ * The CSV has a header line followed by the ten table columns in table order.
+ */
+public class PensionersIngest {
+    public enum Mode { COPY, INSERT }
+
+    private static final String TABLE = "pensioners_transections_last_update_details";
+    private static final String STAGE = "pensioners_ingest_stage";
+    private static final String[] COLUMNS = {
+        "state_code", "state_name", "state_short_name",
+        "igndps_pensioner_last_update_date", "ignoaps_pensioner_last_update_date", "ignwps_pensioner_last_update_date",
+        "igndps_transection_last_update_date", "ignoaps_transection_last_update_date", "ignwps_transection_last_update_date",
+        "state_status"
+    };
+    private static final int[] DATE_COLUMNS = { 3, 4, 5, 6, 7, 8 };
+    private static final String COLUMN_LIST = String.join(", ", COLUMNS);
+    private static final String UPSERT_SUFFIX = upsertSuffix();
+    // PostgreSQL allows at most 32767 bind parameters per statement.
+    private static final int MAX_ROWS_PER_INSERT = 32767 / COLUMNS.length;
+    private static final int QUEUE_CAPACITY = 4;
+    private static final int MAX_REPORTED_REJECTS = 20;
+
+    private static final List<String[]> END = new ArrayList<>();
+
+    private final int batchSize;
+    private final Mode mode;
+
+    private long rowsRead;
+    private long rowsRejected;
+    private long rowsWritten;
+    private long batches;
+
+    public PensionersIngest(int batchSize, Mode mode) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("batchSize must be positive: " + batchSize);
+        }
+        this.batchSize = batchSize;
+        this.mode = mode;
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.err.println("usage: PensionersIngest <file.csv> [batchSize] [copy|insert]");
+            System.exit(2);
+        }
+        int batchSize = args.length > 1 ? Integer.parseInt(args[1]) : 5000;
+        Mode mode = args.length > 2 ? Mode.valueOf(args[2].toUpperCase()) : Mode.COPY;
+        new PensionersIngest(batchSize, mode).run(Paths.get(args[0]));
+    }
+
+    public void run(Path csv) throws IOException, SQLException {
+        Path checkpoint = Paths.get(csv.toString() + ".checkpoint");
+        long resumeAfter = readCheckpoint(checkpoint);
+        BlockingQueue<List<String[]>> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        AtomicReference<Throwable> readerFailure = new AtomicReference<>();
+        Thread reader = new Thread(() -> {
+            try {
+                read(csv, resumeAfter, queue);
+            } catch (Throwable t) {
+                readerFailure.set(t);
+                queue.clear();
+                queue.offer(END);
+            }
+        }, "nssaap-ingest-reader");
+
+        long start = System.nanoTime();
+        reader.setDaemon(true);
+        reader.start();
+        Connection[] shards = new Connection[DBConnection.getShardCount()];
+        try {
+            List<String[]> batch;
+            while ((batch = take(queue)) != END) {
+                List<List<String[]>> parts = splitByShard(batch, shards.length);
+                for (int shard = 0; shard < shards.length; shard++) {
+                    List<String[]> part = parts.get(shard);
+                    if (part.isEmpty()) {
+                        continue;
+                    }
+                    if (shards[shard] == null) {
+                        shards[shard] = open(shard);
+                    }
+                    if (mode == Mode.COPY) {
+                        copyBatch(shards[shard], part);
+                    } else {
+                        insertBatch(shards[shard], part);
+                    }
+                    shards[shard].commit();
+                }
+                rowsWritten += batch.size();
+                batches++;
+                writeCheckpoint(checkpoint, Long.parseLong(batch.get(batch.size() - 1)[COLUMNS.length]));
+            }
+        } finally {
+            reader.interrupt();
+            for (Connection conn : shards) {
+                if (conn != null) {
+                    conn.close();
+                }
+            }
+        }
+        if (readerFailure.get() != null) {
+            throw new IOException("Reading " + csv + " failed", readerFailure.get());
+        }
+        Files.deleteIfExists(checkpoint);
+
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("Ingested %d rows in %d batches (%d rejected, resumed after line %d) in %.1f s, %.0f rows/min%n",
+                rowsWritten, batches, rowsRejected, resumeAfter, seconds, rowsWritten / seconds * 60);
+    }
+
+    public long getRowsRead() {
+        return rowsRead;
+    }
+
+    public long getRowsRejected() {
+        return rowsRejected;
+    }
+
+    public long getRowsWritten() {
+        return rowsWritten;
+    }
+
+    // Each parsed row carries its source line number in an extra trailing slot.
+    private void read(Path csv, long resumeAfter, BlockingQueue<List<String[]>> queue)
+            throws IOException, InterruptedException {
+        try (BufferedReader in = Files.newBufferedReader(csv, StandardCharsets.UTF_8)) {
+            String line = in.readLine();
+            long lineNo = 1;
+            List<String[]> batch = new ArrayList<>(batchSize);
+            while ((line = in.readLine()) != null) {
+                lineNo++;
+                if (lineNo <= resumeAfter || line.isEmpty()) {
+                    continue;
+                }
+                rowsRead++;
+                String[] fields = CsvLineParser.parse(line);
+                String problem = validate(fields);
+                if (problem != null) {
+                    if (++rowsRejected <= MAX_REPORTED_REJECTS) {
+                        System.err.println(csv.getFileName() + ":" + lineNo + ": " + problem);
+                    }
+                    continue;
+                }
+                String[] row = new String[COLUMNS.length + 1];
+                for (int i = 0; i < COLUMNS.length; i++) {
+                    row[i] = fields[i].isEmpty() ? null : fields[i];
+                }
+                row[COLUMNS.length] = Long.toString(lineNo);
+                batch.add(row);
+                if (batch.size() == batchSize) {
+                    queue.put(batch);
+                    batch = new ArrayList<>(batchSize);
+                }
+            }
+            if (!batch.isEmpty()) {
+                queue.put(batch);
+            }
+        }
+        queue.put(END);
+    }
+
+    private static String validate(String[] fields) {
+        if (fields.length != COLUMNS.length) {
+            return "expected " + COLUMNS.length + " fields, got " + fields.length;
+        }
+        if (fields[0].trim().isEmpty()) {
+            return "missing state_code";
+        }
+        for (int col : DATE_COLUMNS) {
+            if (!fields[col].isEmpty()) {
+                try {
+                    // exactly yyyy-MM-dd: nothing before or after, no time of day
+                    LocalDate.parse(fields[col]);
+                } catch (DateTimeParseException e) {
+                    return "bad date in " + COLUMNS[col] + ": " + fields[col];
+                }
+            }
+        }
+        return null;
+    }
+
+    private Connection open(int shard) throws SQLException {
+        Connection conn = DBConnection.getShardConnection(shard);
+        try {
+            conn.setAutoCommit(false);
+            if (mode == Mode.COPY) {
+                try (Statement st = conn.createStatement()) {
+                    st.execute("CREATE TEMP TABLE IF NOT EXISTS " + STAGE + " (LIKE " + TABLE
+                            + " INCLUDING DEFAULTS) ON COMMIT DELETE ROWS");
+                }
+                conn.commit();
+            }
+            return conn;
+        } catch (SQLException | RuntimeException e) {
+            conn.close();
+            throw e;
+        }
+    }
+
+    // Rows go to the primary of the shard owning their state_code; unsharded, all to shard 0.
+    private static List<List<String[]>> splitByShard(List<String[]> batch, int shards) {
+        if (shards == 1) {
+            return Collections.singletonList(batch);
+        }
+        List<List<String[]>> parts = new ArrayList<>(shards);
+        for (int i = 0; i < shards; i++) {
+            parts.add(new ArrayList<>());
+        }
+        for (String[] row : batch) {
+            parts.get(DBConnection.shardOf(row[0])).add(row);
+        }
+        return parts;
+    }
+
+    private void copyBatch(Connection conn, List<String[]> batch) throws SQLException, IOException {
+        StringBuilder csv = new StringBuilder(batch.size() * 160);
+        for (String[] row : batch) {
+            for (int i = 0; i < COLUMNS.length; i++) {
+                if (i > 0) {
+                    csv.append(',');
+                }
+                CsvLineParser.appendField(csv, row[i]);
+            }
+            csv.append('\n');
+        }
+        PGConnection pg = conn.unwrap(PGConnection.class);
+        pg.getCopyAPI().copyIn("COPY " + STAGE + " (" + COLUMN_LIST + ") FROM STDIN WITH (FORMAT csv)",
+                new StringReader(csv.toString()));
+        try (Statement st = conn.createStatement()) {
+            // DISTINCT ON keeps the last line per state so one statement never updates a row twice.
+            st.executeUpdate("INSERT INTO " + TABLE + " (" + COLUMN_LIST + ") SELECT DISTINCT ON (state_code) "
+                    + COLUMN_LIST + " FROM " + STAGE + " ORDER BY state_code, ctid DESC" + UPSERT_SUFFIX);
+        }
+    }
+
+    private void insertBatch(Connection conn, List<String[]> batch) throws SQLException {
+        for (int from = 0; from < batch.size(); from += MAX_ROWS_PER_INSERT) {
+            int to = Math.min(batch.size(), from + MAX_ROWS_PER_INSERT);
+            List<String[]> chunk = dedupe(batch.subList(from, to));
+            StringBuilder sql = new StringBuilder("INSERT INTO ").append(TABLE).append(" (").append(COLUMN_LIST)
+                    .append(") VALUES ");
+            for (int r = 0; r < chunk.size(); r++) {
+                sql.append(r == 0 ? "(" : ", (");
+                for (int i = 0; i < COLUMNS.length; i++) {
+                    sql.append(i == 0 ? "?" : ", ?");
+                }
+                sql.append(')');
+            }
+            sql.append(UPSERT_SUFFIX);
+            try (PreparedStatement ps = conn.prepareStatement(sql.toString())) {
+                int p = 1;
+                for (String[] row : chunk) {
+                    for (int i = 0; i < COLUMNS.length; i++) {
+                        // untyped so the server casts to whatever the column is
+                        ps.setObject(p++, row[i], Types.OTHER);
+                    }
+                }
+                ps.executeUpdate();
+            }
+        }
+    }
+
+    // ON CONFLICT cannot touch the same row twice in one statement; the later line wins.
+    private static List<String[]> dedupe(List<String[]> rows) {
+        LinkedHashMap<String, String[]> byState = new LinkedHashMap<>();
+        for (String[] row : rows) {
+            byState.remove(row[0]);
+            byState.put(row[0], row);
+        }
+        return byState.size() == rows.size() ? rows : new ArrayList<>(byState.values());
+    }
+
+    private static String upsertSuffix() {
+        StringBuilder sb = new StringBuilder(" ON CONFLICT (state_code) DO UPDATE SET ");
+        for (int i = 1; i < COLUMNS.length; i++) {
+            if (i > 1) {
+                sb.append(", ");
+            }
+            sb.append(COLUMNS[i]).append(" = EXCLUDED.").append(COLUMNS[i]);
+        }
+        return sb.toString();
+    }
+
+    private static List<String[]> take(BlockingQueue<List<String[]>> queue) throws IOException {
+        try {
+            return queue.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for the reader", e);
+        }
+    }
+
+    private static long readCheckpoint(Path checkpoint) throws IOException {
+        if (!Files.exists(checkpoint)) {
+            return 0;
+        }
+        String text = new String(Files.readAllBytes(checkpoint), StandardCharsets.UTF_8).trim();
+        return text.isEmpty() ? 0 : Long.parseLong(text);
+    }
+
+    private static void writeCheckpoint(Path checkpoint, long line) throws IOException {
+        Path tmp = Paths.get(checkpoint.toString() + ".tmp");
+        Files.write(tmp, Long.toString(line).getBytes(StandardCharsets.UTF_8));
+        Files.move(tmp, checkpoint, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
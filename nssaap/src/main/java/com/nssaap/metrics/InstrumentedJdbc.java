@@ -0,0 +1,112 @@
+package com.nssaap.metrics;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+
+/**
+ * Wraps a Connection so that statements prepared on it report execute time,
+ * and their result sets report time spent in next() plus the row count,
+ * to {@link QueryMetrics}.
+ */
+public class InstrumentedJdbc {
+
+    public static Connection wrap(Connection conn) {
+        return proxy(Connection.class, new ConnectionHandler(conn));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+        return (T) Proxy.newProxyInstance(InstrumentedJdbc.class.getClassLoader(), new Class<?>[] { type }, handler);
+    }
+
+    private static Object call(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static final class ConnectionHandler implements InvocationHandler {
+        private final Connection conn;
+
+        ConnectionHandler(Connection conn) {
+            this.conn = conn;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            Object result = call(conn, method, args);
+            if (result instanceof PreparedStatement && method.getName().equals("prepareStatement")) {
+                return proxy(PreparedStatement.class, new StatementHandler((PreparedStatement) result, (String) args[0]));
+            }
+            return result;
+        }
+    }
+
+    private static final class StatementHandler implements InvocationHandler {
+        private final PreparedStatement ps;
+        private final String sql;
+
+        StatementHandler(PreparedStatement ps, String sql) {
+            this.ps = ps;
+            this.sql = sql;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (!name.startsWith("execute")) {
+                return call(ps, method, args);
+            }
+            long start = System.nanoTime();
+            Object result = call(ps, method, args);
+            QueryMetrics.getInstance().recordExecute(sql, System.nanoTime() - start);
+            if (result instanceof ResultSet) {
+                return proxy(ResultSet.class, new ResultSetHandler((ResultSet) result, sql));
+            }
+            return result;
+        }
+    }
+
+    private static final class ResultSetHandler implements InvocationHandler {
+        private final ResultSet rs;
+        private final String sql;
+        private long fetchNanos;
+        private long rows;
+        private boolean reported;
+
+        ResultSetHandler(ResultSet rs, String sql) {
+            this.rs = rs;
+            this.sql = sql;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "next": {
+                    long start = System.nanoTime();
+                    Object more = call(rs, method, args);
+                    fetchNanos += System.nanoTime() - start;
+                    if ((Boolean) more) {
+                        rows++;
+                    }
+                    return more;
+                }
+                case "close":
+                    if (!reported) {
+                        reported = true;
+                        QueryMetrics.getInstance().recordFetch(sql, fetchNanos, rows);
+                    }
+                    return call(rs, method, args);
+                default:
+                    return call(rs, method, args);
+            }
+        }
+    }
+}
@@ -0,0 +1,235 @@
+package com.nssaap.metrics;
+
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Process-wide JDBC metrics for the nssaap data layer: latency histograms for
+ * connect, execute, fetch and map, row counts, per-statement totals and a ring of
+ * recent slow queries. Exposed over JMX as com.nssaap:type=QueryMetrics while
+ * {@link #register()}ed, and as plain text through {@link #writeText(PrintWriter)}.
+ *
+ * Statements are labelled by a query id (the SQL verb and a hash of the text), never
+ * the SQL itself; each id is logged once with its SQL the first time it is tracked,
+ * so the server log maps ids back to statements.
+ *
+ * Recording is a few LongAdder updates per call; QueryMetricsBenchmark under
+ * src/test/java measures the cost of the instrumented JDBC path.
+ */
+public class QueryMetrics implements QueryMetricsMBean {
+    public static final boolean ENABLED = !"false".equals(System.getProperty("nssaap.metrics.enabled"));
+    private static final long SLOW_QUERY_NANOS = Long.getLong("nssaap.metrics.slowQueryMillis", 500L) * 1000000L;
+    private static final int SLOW_QUERY_SAMPLES = 32;
+    private static final int MAX_TRACKED_STATEMENTS = 200;
+
+    private static final String MBEAN_NAME = "com.nssaap:type=QueryMetrics";
+    private static final Log LOG = LogFactory.getLog(QueryMetrics.class);
+
+    private static final QueryMetrics INSTANCE = new QueryMetrics();
+
+    static final class StatementStats {
+        final String id;
+        final LongAdder executions = new LongAdder();
+        final LongAdder nanos = new LongAdder();
+        final LongAdder rows = new LongAdder();
+
+        StatementStats(String id) {
+            this.id = id;
+        }
+    }
+
+    private final LatencyHistogram connect = new LatencyHistogram("connect");
+    private final LatencyHistogram execute = new LatencyHistogram("execute");
+    private final LatencyHistogram fetch = new LatencyHistogram("fetch");
+    private final LatencyHistogram map = new LatencyHistogram("map");
+    private final LongAdder statements = new LongAdder();
+    private final LongAdder rows = new LongAdder();
+    private final Map<String, StatementStats> bySql = new ConcurrentHashMap<>();
+    private final AtomicReferenceArray<String> slowQueries = new AtomicReferenceArray<>(SLOW_QUERY_SAMPLES);
+    private final AtomicLong slowQueryIndex = new AtomicLong();
+
+    public static QueryMetrics getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Registers the MBean, replacing one a previous deployment left behind (which
+     * would pin that deployment's classloader and report its counters).
+     */
+    public void register() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(MBEAN_NAME);
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+            server.registerMBean(this, name);
+        } catch (Exception e) {
+            LOG.warn("Could not register " + MBEAN_NAME, e);
+        }
+    }
+
+    public void unregister() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(MBEAN_NAME);
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+        } catch (Exception e) {
+            LOG.warn("Could not unregister " + MBEAN_NAME, e);
+        }
+    }
+
+    public void recordConnect(long nanos) {
+        connect.record(nanos);
+    }
+
+    public void recordExecute(String sql, long nanos) {
+        statements.increment();
+        execute.record(nanos);
+        StatementStats stats = stats(sql);
+        if (stats != null) {
+            stats.executions.increment();
+            stats.nanos.add(nanos);
+        }
+        if (nanos >= SLOW_QUERY_NANOS) {
+            long slot = slowQueryIndex.getAndIncrement() % SLOW_QUERY_SAMPLES;
+            String id = stats != null ? stats.id : queryId(sql);
+            slowQueries.set((int) slot, String.format("%.1f ms %s", nanos / 1e6, id));
+        }
+    }
+
+    public void recordFetch(String sql, long nanos, long rowCount) {
+        fetch.record(nanos);
+        rows.add(rowCount);
+        StatementStats stats = stats(sql);
+        if (stats != null) {
+            stats.rows.add(rowCount);
+        }
+    }
+
+    public void recordMap(long nanos) {
+        map.record(nanos);
+    }
+
+    private StatementStats stats(String sql) {
+        StatementStats stats = bySql.get(sql);
+        if (stats == null && bySql.size() < MAX_TRACKED_STATEMENTS) {
+            stats = bySql.computeIfAbsent(sql, k -> {
+                String id = queryId(k);
+                LOG.info("query " + id + " is " + k.replace('\n', ' '));
+                return new StatementStats(id);
+            });
+        }
+        return stats;
+    }
+
+    /** e.g. select-1f3a9c07: the statement's verb and a hash of its full text. */
+    static String queryId(String sql) {
+        StringBuilder id = new StringBuilder(17);
+        String s = sql.trim();
+        for (int i = 0; i < s.length() && i < 8 && Character.isLetter(s.charAt(i)); i++) {
+            id.append(Character.toLowerCase(s.charAt(i)));
+        }
+        if (id.length() == 0) {
+            id.append("sql");
+        }
+        return id.append('-').append(String.format("%08x", sql.hashCode())).toString();
+    }
+
+    @Override
+    public long getStatements() {
+        return statements.sum();
+    }
+
+    @Override
+    public long getRows() {
+        return rows.sum();
+    }
+
+    @Override
+    public double getConnectMeanMillis() {
+        return connect.getMeanMillis();
+    }
+
+    @Override
+    public double getConnectP99Millis() {
+        return connect.getPercentileMillis(0.99);
+    }
+
+    @Override
+    public double getExecuteMeanMillis() {
+        return execute.getMeanMillis();
+    }
+
+    @Override
+    public double getExecuteP99Millis() {
+        return execute.getPercentileMillis(0.99);
+    }
+
+    @Override
+    public double getFetchMeanMillis() {
+        return fetch.getMeanMillis();
+    }
+
+    @Override
+    public double getFetchP99Millis() {
+        return fetch.getPercentileMillis(0.99);
+    }
+
+    @Override
+    public double getMapMeanMillis() {
+        return map.getMeanMillis();
+    }
+
+    @Override
+    public double getMapP99Millis() {
+        return map.getPercentileMillis(0.99);
+    }
+
+    @Override
+    public String[] getSlowQueries() {
+        List<String> samples = new ArrayList<>();
+        for (int i = 0; i < SLOW_QUERY_SAMPLES; i++) {
+            String s = slowQueries.get(i);
+            if (s != null) {
+                samples.add(s);
+            }
+        }
+        return samples.toArray(new String[0]);
+    }
+
+    public void writeText(PrintWriter out) {
+        out.printf("nssaap_jdbc_statements_total %d%n", getStatements());
+        out.printf("nssaap_jdbc_rows_total %d%n", getRows());
+        for (LatencyHistogram h : new LatencyHistogram[] { connect, execute, fetch, map }) {
+            out.printf("nssaap_jdbc_%s_count %d%n", h.getName(), h.getCount());
+            out.printf("nssaap_jdbc_%s_mean_ms %.3f%n", h.getName(), h.getMeanMillis());
+            out.printf("nssaap_jdbc_%s_p50_ms %.3f%n", h.getName(), h.getPercentileMillis(0.50));
+            out.printf("nssaap_jdbc_%s_p99_ms %.3f%n", h.getName(), h.getPercentileMillis(0.99));
+            out.printf("nssaap_jdbc_%s_max_ms %.3f%n", h.getName(), h.getMaxMillis());
+        }
+        for (StatementStats s : bySql.values()) {
+            out.printf("nssaap_jdbc_statement_executions{query=\"%s\"} %d%n", s.id, s.executions.sum());
+            out.printf("nssaap_jdbc_statement_ms_total{query=\"%s\"} %.3f%n", s.id, s.nanos.sum() / 1e6);
+            out.printf("nssaap_jdbc_statement_rows_total{query=\"%s\"} %d%n", s.id, s.rows.sum());
+        }
+        for (String slow : getSlowQueries()) {
+            out.println("# slow " + slow);
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.nssaap.metrics;
+
+public interface QueryMetricsMBean {
+    long getStatements();
+
+    long getRows();
+
+    double getConnectMeanMillis();
+
+    double getConnectP99Millis();
+
+    double getExecuteMeanMillis();
+
+    double getExecuteP99Millis();
+
+    double getFetchMeanMillis();
+
+    double getFetchP99Millis();
+
+    double getMapMeanMillis();
+
+    double getMapP99Millis();
+
+    String[] getSlowQueries();
+}
@@ -0,0 +1,121 @@
+package com.nssaap.model;
+
+import java.time.LocalDate;
+
+/**
+ * One row of pensioners_transections_last_update_details.
+ * Dates are held as epoch days ({@link #NO_DATE} when the column is null).
+ */
+public final class PensionerRecord {
+    public static final int NO_DATE = Integer.MIN_VALUE;
+
+    private final String stateCode;
+    private final String stateName;
+    private final String stateShortName;
+    private final int igndpsPensionerLastUpdate;
+    private final int ignoapsPensionerLastUpdate;
+    private final int ignwpsPensionerLastUpdate;
+    private final int igndpsTransectionLastUpdate;
+    private final int ignoapsTransectionLastUpdate;
+    private final int ignwpsTransectionLastUpdate;
+    private final String stateStatus;
+
+    public PensionerRecord(String stateCode, String stateName, String stateShortName,
+                           int igndpsPensionerLastUpdate, int ignoapsPensionerLastUpdate, int ignwpsPensionerLastUpdate,
+                           int igndpsTransectionLastUpdate, int ignoapsTransectionLastUpdate, int ignwpsTransectionLastUpdate,
+                           String stateStatus) {
+        this.stateCode = stateCode;
+        this.stateName = stateName;
+        this.stateShortName = stateShortName;
+        this.igndpsPensionerLastUpdate = igndpsPensionerLastUpdate;
+        this.ignoapsPensionerLastUpdate = ignoapsPensionerLastUpdate;
+        this.ignwpsPensionerLastUpdate = ignwpsPensionerLastUpdate;
+        this.igndpsTransectionLastUpdate = igndpsTransectionLastUpdate;
+        this.ignoapsTransectionLastUpdate = ignoapsTransectionLastUpdate;
+        this.ignwpsTransectionLastUpdate = ignwpsTransectionLastUpdate;
+        this.stateStatus = stateStatus;
+    }
+
+    public String getStateCode() {
+        return stateCode;
+    }
+
+    public String getStateName() {
+        return stateName;
+    }
+
+    public String getStateShortName() {
+        return stateShortName;
+    }
+
+    public String getStateStatus() {
+        return stateStatus;
+    }
+
+    public int getIgndpsPensionerLastUpdate() {
+        return igndpsPensionerLastUpdate;
+    }
+
+    public int getIgnoapsPensionerLastUpdate() {
+        return ignoapsPensionerLastUpdate;
+    }
+
+    public int getIgnwpsPensionerLastUpdate() {
+        return ignwpsPensionerLastUpdate;
+    }
+
+    public int getIgndpsTransectionLastUpdate() {
+        return igndpsTransectionLastUpdate;
+    }
+
+    public int getIgnoapsTransectionLastUpdate() {
+        return ignoapsTransectionLastUpdate;
+    }
+
+    public int getIgnwpsTransectionLastUpdate() {
+        return ignwpsTransectionLastUpdate;
+    }
+
+    // ISO yyyy-MM-dd forms for the JSP.
+
+    public String getIgndpsPensionerLastUpdateDate() {
+        return formatDate(igndpsPensionerLastUpdate);
+    }
+
+    public String getIgnoapsPensionerLastUpdateDate() {
+        return formatDate(ignoapsPensionerLastUpdate);
+    }
+
+    public String getIgnwpsPensionerLastUpdateDate() {
+        return formatDate(ignwpsPensionerLastUpdate);
+    }
+
+    public String getIgndpsTransectionLastUpdateDate() {
+        return formatDate(igndpsTransectionLastUpdate);
+    }
+
+    public String getIgnoapsTransectionLastUpdateDate() {
+        return formatDate(ignoapsTransectionLastUpdate);
+    }
+
+    public String getIgnwpsTransectionLastUpdateDate() {
+        return formatDate(ignwpsTransectionLastUpdate);
+    }
+
+    public static String formatDate(int epochDay) {
+        return epochDay == NO_DATE ? null : LocalDate.ofEpochDay(epochDay).toString();
+    }
+
+    /** Parses the leading yyyy-MM-dd of a date or timestamp string. */
+    public static int parseDate(String value) {
+        if (value == null || value.length() < 10) {
+            return NO_DATE;
+        }
+        return (int) LocalDate.parse(value.substring(0, 10)).toEpochDay();
+    }
+
+    @Override
+    public String toString() {
+        return "PensionerRecord[" + stateCode + " " + stateName + " " + stateStatus + "]";
+    }
+}
@@ -0,0 +1,27 @@
+package com.nssaap.model;
+
+import java.sql.Timestamp;
+import java.util.List;
+
+/** Rows changed since a watermark, and the watermark to ask from next time. */
+public final class PensionersChangeSet {
+    private final List<PensionerRecord> rows;
+    private final Timestamp watermark;
+
+    public PensionersChangeSet(List<PensionerRecord> rows, Timestamp watermark) {
+        this.rows = rows;
+        this.watermark = watermark;
+    }
+
+    public List<PensionerRecord> getRows() {
+        return rows;
+    }
+
+    public Timestamp getWatermark() {
+        return watermark;
+    }
+
+    public boolean isEmpty() {
+        return rows.isEmpty();
+    }
+}
@@ -0,0 +1,38 @@
+package com.nssaap.model;
+
+import java.util.List;
+
+/** One keyset page of the pensioners listing. */
+public final class PensionersPage {
+    private final List<PensionerRecord> rows;
+    private final String nextCursor;
+    private final boolean stale;
+
+    public PensionersPage(List<PensionerRecord> rows, String nextCursor) {
+        this(rows, nextCursor, false);
+    }
+
+    public PensionersPage(List<PensionerRecord> rows, String nextCursor, boolean stale) {
+        this.rows = rows;
+        this.nextCursor = nextCursor;
+        this.stale = stale;
+    }
+
+    public List<PensionerRecord> getRows() {
+        return rows;
+    }
+
+    /** state_code of the last row, or null when this is the last page. */
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public boolean hasMore() {
+        return nextCursor != null;
+    }
+
+    /** Cut from the last good snapshot because the database could not be read. */
+    public boolean isStale() {
+        return stale;
+    }
+}
@@ -0,0 +1,169 @@
+package com.nssaap.report;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.nssaap.dao.PensionerRecordMapper;
+import com.nssaap.utils.DBConnection;
+import com.nssaap.utils.DatabaseUnavailableException;
+import com.nssaap.utils.DbGuard;
+import com.nssaap.utils.ShardScatter;
+
+/**
+ * Builds a {@link PensionersSummary} by partitioning the work by state_code.
+ * Each state is queried and aggregated on a bounded worker pool and the partial
+ * summaries are merged as they complete, so wall-clock time falls with the
+ * number of workers instead of growing with the number of states.
+ * A report keeps at most one state per worker in flight, and the workers take no
+ * more than half of the {@link DbGuard} bulkhead, so a large report waits on its
+ * own workers instead of being shed by the bulkhead it shares with page traffic.
+ * All queries are read-only and go to replicas, each state to the shard that owns it.
+ */
+public class PensionersReportEngine {
+    private static final String STATES_QUERY =
+            "SELECT DISTINCT state_code FROM pensioners_transections_last_update_details";
+    private static final String STATE_QUERY =
+            "SELECT " + PensionerRecordMapper.PROJECTION
+            + " FROM pensioners_transections_last_update_details WHERE state_code = ?";
+
+    // Created on first use, so undeploying an app that never ran a report starts no pool.
+    private static PensionersReportEngine instance;
+
+    private final ExecutorService workers;
+    private final int parallelism;
+
+    public PensionersReportEngine(int parallelism) {
+        this.parallelism = parallelism;
+        AtomicInteger count = new AtomicInteger();
+        // Each running report queues at most one window of states, so the queue only
+        // fills when several reports overlap; the extra ones are rejected.
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(parallelism, parallelism, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(parallelism * 2), r -> {
+                    Thread t = new Thread(r, "nssaap-report-" + count.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+        pool.allowCoreThreadTimeOut(true);
+        this.workers = pool;
+    }
+
+    public static synchronized PensionersReportEngine getInstance() {
+        if (instance == null) {
+            instance = new PensionersReportEngine(defaultParallelism());
+        }
+        return instance;
+    }
+
+    /** Stops the shared engine's workers, if it was ever created. */
+    public static synchronized void shutdownInstance() {
+        if (instance != null) {
+            instance.workers.shutdownNow();
+            instance = null;
+        }
+    }
+
+    // Leave half the connection pool and half the bulkhead for page traffic.
+    private static int defaultParallelism() {
+        int cores = Runtime.getRuntime().availableProcessors();
+        int share = Math.min(DBConnection.getPool().getMaxSize(), DbGuard.getInstance().getMaxConcurrent()) / 2;
+        return Math.max(1, Math.min(cores, share));
+    }
+
+    public PensionersSummary summarize() throws SQLException {
+        long start = System.nanoTime();
+        int today = (int) LocalDate.now().toEpochDay();
+        List<String> states = DbGuard.getInstance().call(this::loadStateCodes);
+
+        ExecutorCompletionService<PensionersSummary> completion = new ExecutorCompletionService<>(workers);
+        PensionersSummary total = new PensionersSummary(today);
+        List<Future<PensionersSummary>> futures = new ArrayList<>(states.size());
+        try {
+            int submitted = 0;
+            while (submitted < Math.min(parallelism, states.size())) {
+                futures.add(submit(completion, states.get(submitted++), today));
+            }
+            for (int i = 0; i < states.size(); i++) {
+                total.merge(completion.take().get());
+                if (submitted < states.size()) {
+                    futures.add(submit(completion, states.get(submitted++), today));
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while building the pensioners summary", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof SQLException) {
+                throw (SQLException) e.getCause();
+            }
+            throw new SQLException("Pensioners summary failed", e.getCause());
+        } finally {
+            // After a failure the other states are still queued or running: queued ones
+            // never start, and running ones are interrupted (which frees a worker waiting
+            // for a connection). Futures that already finished ignore this.
+            for (Future<PensionersSummary> f : futures) {
+                f.cancel(true);
+            }
+        }
+        total.setElapsedMillis(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        return total;
+    }
+
+    private static Future<PensionersSummary> submit(ExecutorCompletionService<PensionersSummary> completion,
+                                                    String state, int today) throws DatabaseUnavailableException {
+        try {
+            return completion.submit(() -> DbGuard.getInstance().call(() -> summarizeState(state, today)));
+        } catch (RejectedExecutionException e) {
+            throw new DatabaseUnavailableException(DatabaseUnavailableException.Reason.BULKHEAD_FULL,
+                    "Too many pensioners reports running");
+        }
+    }
+
+    private List<String> loadStateCodes() throws SQLException {
+        List<String> states = new ArrayList<>();
+        for (List<String> part : ShardScatter.gather(PensionersReportEngine::loadStateCodes)) {
+            states.addAll(part);
+        }
+        return states;
+    }
+
+    private static List<String> loadStateCodes(int shard) throws SQLException {
+        List<String> states = new ArrayList<>();
+        try (Connection conn = DBConnection.getShardReadConnection(shard);
+             PreparedStatement ps = conn.prepareStatement(STATES_QUERY);
+             ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                states.add(rs.getString(1));
+            }
+        }
+        return states;
+    }
+
+    private static PensionersSummary summarizeState(String state, int today) throws SQLException {
+        PensionersSummary partial = new PensionersSummary(today);
+        try (Connection conn = DBConnection.getReadConnection(state);
+             PreparedStatement ps = conn.prepareStatement(STATE_QUERY)) {
+            ps.setString(1, state);
+            try (ResultSet rs = ps.executeQuery()) {
+                PensionerRecordMapper mapper = PensionerRecordMapper.INSTANCE;
+                while (rs.next()) {
+                    partial.add(mapper.map(rs));
+                }
+            }
+        }
+        return partial;
+    }
+}
@@ -0,0 +1,140 @@
+package com.nssaap.report;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import com.nssaap.model.PensionerRecord;
+
+/**
+ * Staleness summary across states: days since the last pensioner and
+ * transaction update for each scheme, and row counts by state_status.
+ * Partial summaries built per state are combined with {@link #merge}.
+ */
+public class PensionersSummary {
+
+    /** Lag statistics for one scheme, in days. */
+    public static final class SchemeLag {
+        private final Scheme scheme;
+        private long pensionerLagSum;
+        private int pensionerLagMax;
+        private int pensionerStates;
+        private long transectionLagSum;
+        private int transectionLagMax;
+        private int transectionStates;
+
+        SchemeLag(Scheme scheme) {
+            this.scheme = scheme;
+        }
+
+        void add(int pensionerLag, int transectionLag) {
+            if (pensionerLag >= 0) {
+                pensionerLagSum += pensionerLag;
+                pensionerLagMax = Math.max(pensionerLagMax, pensionerLag);
+                pensionerStates++;
+            }
+            if (transectionLag >= 0) {
+                transectionLagSum += transectionLag;
+                transectionLagMax = Math.max(transectionLagMax, transectionLag);
+                transectionStates++;
+            }
+        }
+
+        void merge(SchemeLag other) {
+            pensionerLagSum += other.pensionerLagSum;
+            pensionerLagMax = Math.max(pensionerLagMax, other.pensionerLagMax);
+            pensionerStates += other.pensionerStates;
+            transectionLagSum += other.transectionLagSum;
+            transectionLagMax = Math.max(transectionLagMax, other.transectionLagMax);
+            transectionStates += other.transectionStates;
+        }
+
+        public String getScheme() {
+            return scheme.name();
+        }
+
+        public int getPensionerLagMax() {
+            return pensionerLagMax;
+        }
+
+        public long getPensionerLagAvg() {
+            return pensionerStates == 0 ? 0 : Math.round((double) pensionerLagSum / pensionerStates);
+        }
+
+        public int getPensionerStates() {
+            return pensionerStates;
+        }
+
+        public int getTransectionLagMax() {
+            return transectionLagMax;
+        }
+
+        public long getTransectionLagAvg() {
+            return transectionStates == 0 ? 0 : Math.round((double) transectionLagSum / transectionStates);
+        }
+
+        public int getTransectionStates() {
+            return transectionStates;
+        }
+    }
+
+    private final int today;
+    private final SchemeLag[] lags = new SchemeLag[Scheme.values().length];
+    private final Map<String, Integer> statusCounts = new TreeMap<>();
+    private int rows;
+    private long elapsedMillis;
+
+    public PensionersSummary(int todayEpochDay) {
+        this.today = todayEpochDay;
+        for (Scheme s : Scheme.values()) {
+            lags[s.ordinal()] = new SchemeLag(s);
+        }
+    }
+
+    public void add(PensionerRecord r) {
+        rows++;
+        for (Scheme s : Scheme.values()) {
+            lags[s.ordinal()].add(lag(s.pensionerLastUpdate(r)), lag(s.transectionLastUpdate(r)));
+        }
+        String status = r.getStateStatus() == null ? "(none)" : r.getStateStatus();
+        statusCounts.merge(status, 1, Integer::sum);
+    }
+
+    public PensionersSummary merge(PensionersSummary other) {
+        rows += other.rows;
+        for (int i = 0; i < lags.length; i++) {
+            lags[i].merge(other.lags[i]);
+        }
+        other.statusCounts.forEach((status, n) -> statusCounts.merge(status, n, Integer::sum));
+        return this;
+    }
+
+    private int lag(int epochDay) {
+        return epochDay == PensionerRecord.NO_DATE ? -1 : Math.max(0, today - epochDay);
+    }
+
+    public List<SchemeLag> getSchemes() {
+        List<SchemeLag> list = new ArrayList<>(lags.length);
+        for (SchemeLag l : lags) {
+            list.add(l);
+        }
+        return list;
+    }
+
+    public Map<String, Integer> getStatusCounts() {
+        return statusCounts;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    void setElapsedMillis(long elapsedMillis) {
+        this.elapsedMillis = elapsedMillis;
+    }
+}
@@ -0,0 +1,44 @@
+package com.nssaap.report;
+
+import com.nssaap.model.PensionerRecord;
+
+/** The three pension schemes tracked per state. */
+public enum Scheme {
+    IGNDPS {
+        @Override
+        int pensionerLastUpdate(PensionerRecord r) {
+            return r.getIgndpsPensionerLastUpdate();
+        }
+
+        @Override
+        int transectionLastUpdate(PensionerRecord r) {
+            return r.getIgndpsTransectionLastUpdate();
+        }
+    },
+    IGNOAPS {
+        @Override
+        int pensionerLastUpdate(PensionerRecord r) {
+            return r.getIgnoapsPensionerLastUpdate();
+        }
+
+        @Override
+        int transectionLastUpdate(PensionerRecord r) {
+            return r.getIgnoapsTransectionLastUpdate();
+        }
+    },
+    IGNWPS {
+        @Override
+        int pensionerLastUpdate(PensionerRecord r) {
+            return r.getIgnwpsPensionerLastUpdate();
+        }
+
+        @Override
+        int transectionLastUpdate(PensionerRecord r) {
+            return r.getIgnwpsTransectionLastUpdate();
+        }
+    };
+
+    abstract int pensionerLastUpdate(PensionerRecord r);
+
+    abstract int transectionLastUpdate(PensionerRecord r);
+}
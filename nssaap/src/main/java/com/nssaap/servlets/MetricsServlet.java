@@ -0,0 +1,65 @@
+package com.nssaap.servlets;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import com.nssaap.dao.PensionersCache;
+import com.nssaap.metrics.QueryMetrics;
+import com.nssaap.utils.CircuitBreaker;
+import com.nssaap.utils.ConnectionPool;
+import com.nssaap.utils.DBConnection;
+import com.nssaap.utils.DbCluster;
+import com.nssaap.utils.DbGuard;
+
+/** Plain-text scrape endpoint for the JDBC, pool and cache counters. */
+public class MetricsServlet extends HttpServlet {
+    private static final long serialVersionUID = 1L;
+
+    @Override
+    protected void doGet(HttpServletRequest request, HttpServletResponse response)
+            throws ServletException, IOException {
+        response.setContentType("text/plain; version=0.0.4; charset=UTF-8");
+        response.setHeader("Cache-Control", "no-store");
+        PrintWriter out = response.getWriter();
+
+        QueryMetrics.getInstance().writeText(out);
+
+        for (DbCluster cluster : DBConnection.getClusters()) {
+            writePool(out, cluster.getName(), "primary", cluster.getPrimary());
+            int i = 0;
+            for (DbCluster.Replica replica : cluster.getReplicas()) {
+                String role = "replica" + i++;
+                writePool(out, cluster.getName(), role, replica.getPool());
+                String labels = "{cluster=\"" + cluster.getName() + "\",role=\"" + role + "\"}";
+                out.printf("nssaap_replica_up%s %d%n", labels, replica.isUp() ? 1 : 0);
+                out.printf("nssaap_replica_latency_ms%s %.3f%n", labels, replica.getLatencyMillis());
+            }
+        }
+
+        DbGuard guard = DbGuard.getInstance();
+        out.printf("nssaap_db_circuit_open %d%n", guard.getCircuitState() == CircuitBreaker.State.CLOSED ? 0 : 1);
+        out.printf("nssaap_db_bulkhead_available %d%n", guard.getAvailableSlots());
+
+        PensionersCache cache = PensionersCache.getInstance();
+        out.printf("nssaap_cache_hits_total %d%n", cache.getHits());
+        out.printf("nssaap_cache_stale_hits_total %d%n", cache.getStaleHits());
+        out.printf("nssaap_cache_misses_total %d%n", cache.getMisses());
+        out.printf("nssaap_cache_loads_total %d%n", cache.getLoads());
+        out.printf("nssaap_cache_load_failures_total %d%n", cache.getLoadFailures());
+        out.printf("nssaap_cache_stale_on_error_total %d%n", cache.getStaleOnError());
+        out.printf("nssaap_cache_load_mean_ms %.3f%n", cache.getAverageLoadMillis());
+        out.flush();
+    }
+
+    private static void writePool(PrintWriter out, String cluster, String role, ConnectionPool pool) {
+        String labels = "{cluster=\"" + cluster + "\",role=\"" + role + "\"}";
+        out.printf("nssaap_pool_connections_total%s %d%n", labels, pool.getTotalConnections());
+        out.printf("nssaap_pool_connections_idle%s %d%n", labels, pool.getIdleConnections());
+        out.printf("nssaap_pool_connections_active%s %d%n", labels, pool.getActiveConnections());
+    }
+}
@@ -0,0 +1,93 @@
+package com.nssaap.servlets;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.ServletContext;
+import javax.servlet.ServletContextEvent;
+import javax.servlet.ServletContextListener;
+
+import com.nssaap.dao.PensionersCache;
+import com.nssaap.dao.PensionersChangeFeed;
+import com.nssaap.metrics.QueryMetrics;
+import com.nssaap.report.PensionersReportEngine;
+import com.nssaap.utils.DBConnection;
+import com.nssaap.utils.DaoExecutor;
+import com.nssaap.utils.ShardScatter;
+
+/**
+ * Starts and stops the webapp's background services.
+ *
+ * On startup it loads the JDBC driver, opens the pool's minimum connections and
+ * primes the pensioners cache in parallel, and holds deployment until they finish
+ * (or WARMUP_TIMEOUT_SECONDS passes) so the first request does not pay for them.
+ * The JSPs are compiled by their load-on-startup entries in web.xml. Each phase's
+ * time and result, or its failure, is written to the servlet context log. On shutdown it stops every thread
+ * pool the webapp started, then closes the connection pools for good.
+ */
+public class NssaapContextListener implements ServletContextListener {
+    private static final long WARMUP_TIMEOUT_SECONDS = 30;
+
+    @Override
+    public void contextInitialized(ServletContextEvent event) {
+        ServletContext context = event.getServletContext();
+        long start = System.nanoTime();
+        QueryMetrics.getInstance().register();
+
+        // Each phase returns a short description of what it got ready.
+        Map<String, Callable<String>> phases = new LinkedHashMap<>();
+        phases.put("connection pools", () -> DBConnection.warmUp() + " connections opened");
+        phases.put("pensioners cache", () -> PensionersCache.getInstance().get().size() + " rows loaded");
+
+        ExecutorService warmup = Executors.newFixedThreadPool(phases.size(), r -> {
+            Thread t = new Thread(r, "nssaap-warmup");
+            t.setDaemon(true);
+            return t;
+        });
+        Map<String, Future<String>> results = new LinkedHashMap<>();
+        for (Map.Entry<String, Callable<String>> phase : phases.entrySet()) {
+            results.put(phase.getKey(), warmup.submit(() -> {
+                long t0 = System.nanoTime();
+                String result = phase.getValue().call();
+                return result + " in " + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - t0) + " ms";
+            }));
+        }
+        warmup.shutdown();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(WARMUP_TIMEOUT_SECONDS);
+        // Not fatal either way: whatever did not warm up is initialised lazily on first use.
+        for (Map.Entry<String, Future<String>> result : results.entrySet()) {
+            try {
+                String done = result.getValue().get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                context.log("nssaap warmup: " + result.getKey() + " ready, " + done);
+            } catch (ExecutionException e) {
+                context.log("nssaap warmup: " + result.getKey() + " FAILED", e.getCause());
+            } catch (Exception e) {
+                context.log("nssaap warmup: " + result.getKey() + " not ready: " + e);
+            }
+        }
+
+        PensionersChangeFeed feed = PensionersChangeFeed.getInstance();
+        feed.subscribe(PensionersCache.getInstance());
+        feed.start();
+        context.log("nssaap warmup: done in " + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms");
+    }
+
+    @Override
+    public void contextDestroyed(ServletContextEvent event) {
+        // Everything that borrows connections stops first, then the pools go.
+        PensionersChangeFeed.getInstance().stop();
+        PensionersChangeFeed.getInstance().unsubscribe(PensionersCache.getInstance());
+        PensionersCache.getInstance().shutdown();
+        PensionersReportEngine.shutdownInstance();
+        DaoExecutor.shutdown();
+        ShardScatter.shutdown();
+        QueryMetrics.getInstance().unregister();
+        DBConnection.shutdown();
+    }
+}
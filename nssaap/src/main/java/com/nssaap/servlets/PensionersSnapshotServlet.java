@@ -0,0 +1,262 @@
+package com.nssaap.servlets;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+import java.util.Locale;
+import java.util.zip.GZIPOutputStream;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import com.nssaap.dao.PensionersCache;
+import com.nssaap.model.PensionerRecord;
+import com.nssaap.utils.PensionersTableWriter;
+
+/**
+ * Serves the full pensioners listing as JSON (/pensioners.json) or an HTML table
+ * (/pensioners.html). Each body is rendered and gzipped once per cached data load
+ * and then served straight from a byte array with a strong ETag, so repeat
+ * viewers get a 304 without touching the database or a JSP. The plain and gzip
+ * bodies are different representations, so each has its own ETag (the gzip one
+ * ends in -gz) and every response varies on Accept-Encoding. A conditional request
+ * whose ETag matches the snapshot built from the cache's newest data gets its 304
+ * from {@link PensionersCache#peek()}, so it never waits on a database load.
+ */
+public class PensionersSnapshotServlet extends HttpServlet {
+    private static final long serialVersionUID = 1L;
+
+    private static final class Snapshot {
+        final List<PensionerRecord> source;
+        final String contentType;
+        final byte[] plain;
+        final byte[] gzipped;
+        final String etag;
+        final String gzipEtag;
+
+        Snapshot(List<PensionerRecord> source, String contentType, byte[] plain) throws IOException {
+            this.source = source;
+            this.contentType = contentType;
+            this.plain = plain;
+            this.gzipped = gzip(plain);
+            String hash = sha256(plain);
+            this.etag = '"' + hash + '"';
+            this.gzipEtag = '"' + hash + "-gz\"";
+        }
+    }
+
+    private volatile Snapshot json;
+    private volatile Snapshot html;
+
+    @Override
+    protected void doGet(HttpServletRequest request, HttpServletResponse response)
+            throws ServletException, IOException {
+        boolean asHtml = request.getServletPath().endsWith(".html");
+        response.setHeader("Vary", "Accept-Encoding");
+        boolean gzip = acceptsGzip(request.getHeader("Accept-Encoding"));
+        String ifNoneMatch = request.getHeader("If-None-Match");
+
+        Snapshot published = asHtml ? html : json;
+        if (ifNoneMatch != null && published != null && published.source == PensionersCache.getInstance().peek()) {
+            String etag = gzip ? published.gzipEtag : published.etag;
+            if (matches(ifNoneMatch, etag)) {
+                notModified(response, etag);
+                return;
+            }
+        }
+
+        List<PensionerRecord> data;
+        try {
+            data = PensionersCache.getInstance().get();
+        } catch (Exception e) {
+            e.printStackTrace();
+            response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            return;
+        }
+
+        Snapshot snapshot = asHtml ? html : json;
+        if (snapshot == null || snapshot.source != data) {
+            snapshot = asHtml
+                    ? new Snapshot(data, "text/html; charset=UTF-8", renderHtml(data))
+                    : new Snapshot(data, "application/json; charset=UTF-8", renderJson(data));
+            if (asHtml) {
+                html = snapshot;
+            } else {
+                json = snapshot;
+            }
+        }
+
+        String etag = gzip ? snapshot.gzipEtag : snapshot.etag;
+        if (matches(ifNoneMatch, etag)) {
+            notModified(response, etag);
+            return;
+        }
+        response.setHeader("ETag", etag);
+        response.setHeader("Cache-Control", "no-cache");
+
+        response.setContentType(snapshot.contentType);
+        byte[] body = snapshot.plain;
+        if (gzip) {
+            response.setHeader("Content-Encoding", "gzip");
+            body = snapshot.gzipped;
+        }
+        response.setContentLength(body.length);
+        response.getOutputStream().write(body);
+    }
+
+    private static void notModified(HttpServletResponse response, String etag) {
+        response.setHeader("ETag", etag);
+        response.setHeader("Cache-Control", "no-cache");
+        response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+    }
+
+    // If-None-Match uses the weak comparison, so a W/ prefix still matches.
+    private static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String c = candidate.trim();
+            if (c.startsWith("W/")) {
+                c = c.substring(2);
+            }
+            if (c.equals("*") || c.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Whether Accept-Encoding allows gzip: an explicit gzip (or x-gzip) entry decides,
+     * otherwise "*" does, and a q-value of 0 (or one that does not parse) refuses.
+     */
+    private static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        Boolean any = null;
+        for (String entry : acceptEncoding.split(",")) {
+            String[] parts = entry.split(";");
+            String coding = parts[0].trim().toLowerCase(Locale.ROOT);
+            boolean gzip = coding.equals("gzip") || coding.equals("x-gzip");
+            if (!gzip && !coding.equals("*")) {
+                continue;
+            }
+            boolean accepted = quality(parts) > 0;
+            if (gzip) {
+                return accepted;
+            }
+            any = accepted;
+        }
+        return any != null && any;
+    }
+
+    private static double quality(String[] parts) {
+        for (int i = 1; i < parts.length; i++) {
+            String param = parts[i].trim();
+            if (param.length() > 1 && (param.charAt(0) == 'q' || param.charAt(0) == 'Q')
+                    && param.substring(1).trim().startsWith("=")) {
+                try {
+                    return Double.parseDouble(param.substring(param.indexOf('=') + 1).trim());
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 1;
+    }
+
+    private static byte[] renderJson(List<PensionerRecord> data) {
+        StringBuilder sb = new StringBuilder(data.size() * 256);
+        sb.append('[');
+        for (int i = 0; i < data.size(); i++) {
+            PensionerRecord r = data.get(i);
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append('{');
+            field(sb, "state_code", r.getStateCode()).append(',');
+            field(sb, "state_name", r.getStateName()).append(',');
+            field(sb, "state_short_name", r.getStateShortName()).append(',');
+            field(sb, "igndps_pensioner_last_update_date", r.getIgndpsPensionerLastUpdateDate()).append(',');
+            field(sb, "ignoaps_pensioner_last_update_date", r.getIgnoapsPensionerLastUpdateDate()).append(',');
+            field(sb, "ignwps_pensioner_last_update_date", r.getIgnwpsPensionerLastUpdateDate()).append(',');
+            field(sb, "igndps_transection_last_update_date", r.getIgndpsTransectionLastUpdateDate()).append(',');
+            field(sb, "ignoaps_transection_last_update_date", r.getIgnoapsTransectionLastUpdateDate()).append(',');
+            field(sb, "ignwps_transection_last_update_date", r.getIgnwpsTransectionLastUpdateDate()).append(',');
+            field(sb, "state_status", r.getStateStatus());
+            sb.append('}');
+        }
+        sb.append(']');
+        return sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static StringBuilder field(StringBuilder sb, String name, String value) {
+        sb.append('"').append(name).append("\":");
+        if (value == null) {
+            return sb.append("null");
+        }
+        sb.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"': sb.append("\\\""); break;
+                case '\\': sb.append("\\\\"); break;
+                case '\n': sb.append("\\n"); break;
+                case '\r': sb.append("\\r"); break;
+                case '\t': sb.append("\\t"); break;
+                default:
+                    if (c < 0x20) {
+                        sb.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        sb.append(c);
+                    }
+            }
+        }
+        return sb.append('"');
+    }
+
+    private static byte[] renderHtml(List<PensionerRecord> data) throws IOException {
+        StringWriter out = new StringWriter(data.size() * 160 + 512);
+        out.write("<html>\n<head>\n    <title>Pensioners Data</title>\n</head>\n<body>\n");
+        out.write("    <h2>Pensioners Transactions Last Update Details</h2>\n");
+        out.write("    <table border=\"1\">\n        <tr>\n");
+        out.write("            <th>State Code</th>\n            <th>State Name</th>\n");
+        out.write("            <th>Last Update Date (DPS)</th>\n            <th>Last Update Date (OAPS)</th>\n");
+        out.write("            <th>Last Update Date (WPS)</th>\n        </tr>\n");
+        PensionersTableWriter rows = new PensionersTableWriter(out);
+        for (PensionerRecord r : data) {
+            rows.handleRow(r);
+        }
+        out.write("    </table>\n</body>\n</html>\n");
+        return out.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] gzip(byte[] plain) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(plain.length / 4 + 64);
+        try (GZIPOutputStream gz = new GZIPOutputStream(bytes)) {
+            gz.write(plain);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static String sha256(byte[] content) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(content);
+            StringBuilder hex = new StringBuilder(32);
+            for (int i = 0; i < 16; i++) {
+                hex.append(Character.forDigit((digest[i] >> 4) & 0xf, 16)).append(Character.forDigit(digest[i] & 0xf, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.nssaap.utils;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Opens after a run of consecutive failures and rejects calls for a cool-down
+ * period, then lets a single trial call through (half-open): success closes
+ * the circuit again, failure reopens it.
+ */
+public class CircuitBreaker {
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final int failureThreshold;
+    private final long openNanos;
+    private final AtomicReference<State> state = new AtomicReference<>(State.CLOSED);
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    private volatile long openedAtNanos;
+
+    public CircuitBreaker(int failureThreshold, long openMillis) {
+        this.failureThreshold = failureThreshold;
+        this.openNanos = TimeUnit.MILLISECONDS.toNanos(openMillis);
+    }
+
+    /** Whether a call may go ahead now; in half-open state only one caller gets true. */
+    public boolean allowRequest() {
+        State s = state.get();
+        if (s == State.CLOSED) {
+            return true;
+        }
+        if (s == State.OPEN && System.nanoTime() - openedAtNanos >= openNanos) {
+            return state.compareAndSet(State.OPEN, State.HALF_OPEN);
+        }
+        return false;
+    }
+
+    public void recordSuccess() {
+        consecutiveFailures.set(0);
+        if (state.get() != State.CLOSED) {
+            state.set(State.CLOSED);
+        }
+    }
+
+    public void recordFailure() {
+        int failures = consecutiveFailures.incrementAndGet();
+        State s = state.get();
+        if (s == State.HALF_OPEN || (s == State.CLOSED && failures >= failureThreshold)) {
+            openedAtNanos = System.nanoTime();
+            state.set(State.OPEN);
+        }
+    }
+
+    /**
+     * Releases a half-open trial that ended without telling us whether the database is
+     * healthy; the circuit reopens for a full cool-down before the next trial.
+     */
+    public void recordIgnored() {
+        if (state.get() == State.HALF_OPEN) {
+            openedAtNanos = System.nanoTime();
+            state.compareAndSet(State.HALF_OPEN, State.OPEN);
+        }
+    }
+
+    public State getState() {
+        return state.get();
+    }
+}
@@ -0,0 +1,520 @@
+package com.nssaap.utils;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bounded JDBC connection pool.
+ *
+ * Borrowing takes a permit from a semaphore (at most maxSize connections are ever
+ * handed out) and then pops a warm connection from a lock-free idle stack, opening a
+ * new physical connection only when the stack is empty. Callers get a proxy whose
+ * close() hands the connection back instead of closing it, so plain
+ * try-with-resources keeps working.
+ *
+ * Each physical connection also keeps an LRU cache of prepared statements keyed by
+ * SQL text. Closing a cached statement only clears it for the next borrower, so hot
+ * queries stay parsed and planned on the server across requests.
+ *
+ * Statements and result sets are handed out through proxies too, so a
+ * connection-class failure (SQLState 08xxx) anywhere on a lease marks the physical
+ * connection broken and it is discarded on return instead of lent out again. A result
+ * set's getStatement() answers with the proxy that produced it, never the pooled
+ * statement underneath.
+ *
+ * The bundled driver is JDBC 3, so the proxies never forward JDBC 4 calls
+ * (Statement.isClosed, unwrap, isWrapperFor) to it; they answer those themselves.
+ */
+public class ConnectionPool {
+    private final String url;
+    private final String user;
+    private final String password;
+    private final int minSize;
+    private final int maxSize;
+    private final long borrowTimeoutMillis;
+    private final long idleTimeoutNanos;
+    private final long validationIntervalNanos;
+    private final int statementCacheSize;
+
+    private final ConcurrentLinkedDeque<PooledConnection> idle = new ConcurrentLinkedDeque<>();
+    private final Semaphore permits;
+    private final AtomicInteger totalConnections = new AtomicInteger();
+    private final ScheduledExecutorService evictor;
+    private volatile boolean closed;
+
+    public ConnectionPool(String driverClass, String url, String user, String password,
+                          int minSize, int maxSize, long borrowTimeoutMillis,
+                          long idleTimeoutMillis, long validationIntervalMillis, int statementCacheSize) {
+        if (minSize < 0 || maxSize <= 0 || minSize > maxSize) {
+            throw new IllegalArgumentException("Invalid pool size: min=" + minSize + ", max=" + maxSize);
+        }
+        try {
+            Class.forName(driverClass);
+        } catch (ClassNotFoundException e) {
+            throw new IllegalStateException("JDBC driver not found: " + driverClass, e);
+        }
+        this.url = url;
+        this.user = user;
+        this.password = password;
+        this.minSize = minSize;
+        this.maxSize = maxSize;
+        this.borrowTimeoutMillis = borrowTimeoutMillis;
+        this.idleTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(idleTimeoutMillis);
+        this.validationIntervalNanos = TimeUnit.MILLISECONDS.toNanos(validationIntervalMillis);
+        this.statementCacheSize = statementCacheSize;
+        this.permits = new Semaphore(maxSize);
+
+        this.evictor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "nssaap-pool-evictor");
+            t.setDaemon(true);
+            return t;
+        });
+        long period = Math.max(1000L, idleTimeoutMillis / 2);
+        evictor.scheduleWithFixedDelay(this::evictIdle, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    public Connection borrow() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool is closed");
+        }
+        acquirePermit();
+        return take();
+    }
+
+    /**
+     * Like {@link #borrow()}, but returns null straight away instead of waiting when
+     * every connection is leased, for callers that have somewhere else to go.
+     */
+    public Connection tryBorrow() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool is closed");
+        }
+        if (!permits.tryAcquire()) {
+            return null;
+        }
+        return take();
+    }
+
+    // Called holding a permit; gives it back if no connection can be handed out.
+    private Connection take() throws SQLException {
+        try {
+            PooledConnection pc;
+            while ((pc = idle.pollFirst()) != null) {
+                if (isUsable(pc)) {
+                    return pc.lease();
+                }
+                destroy(pc);
+            }
+            return create().lease();
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Opens connections until the pool holds at least minSize and returns how many it
+     * opened. Each opening holds a permit, like a borrow, so warmup never takes the
+     * pool past maxSize; a fully leased pool is left for later. A failed connect is
+     * thrown, with whatever was opened before it kept in the pool.
+     */
+    public int warmUp() throws SQLException {
+        int opened = 0;
+        while (!closed && totalConnections.get() < minSize) {
+            if (!permits.tryAcquire()) {
+                break;
+            }
+            try {
+                if (totalConnections.get() < minSize) {
+                    idle.offerLast(create());
+                    opened++;
+                }
+            } finally {
+                permits.release();
+            }
+        }
+        return opened;
+    }
+
+    public void close() {
+        closed = true;
+        evictor.shutdownNow();
+        PooledConnection pc;
+        while ((pc = idle.pollFirst()) != null) {
+            destroy(pc);
+        }
+    }
+
+    public int getTotalConnections() {
+        return totalConnections.get();
+    }
+
+    public int getIdleConnections() {
+        return idle.size();
+    }
+
+    public int getActiveConnections() {
+        return maxSize - permits.availablePermits();
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    private void acquirePermit() throws SQLException {
+        if (permits.tryAcquire()) {
+            return;
+        }
+        try {
+            if (!permits.tryAcquire(borrowTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw new PoolExhaustedException("Timed out after " + borrowTimeoutMillis
+                        + " ms waiting for a connection (max " + maxSize + " in use)");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new PoolExhaustedException("Interrupted while waiting for a connection", e);
+        }
+    }
+
+    private PooledConnection create() throws SQLException {
+        Connection physical = DriverManager.getConnection(url, user, password);
+        totalConnections.incrementAndGet();
+        return new PooledConnection(physical);
+    }
+
+    // Connections used within the validation interval are trusted; older ones get a round trip.
+    private boolean isUsable(PooledConnection pc) {
+        if (pc.broken) {
+            return false;
+        }
+        if (System.nanoTime() - pc.lastUsedNanos < validationIntervalNanos) {
+            return true;
+        }
+        try (Statement st = pc.physical.createStatement()) {
+            st.execute("SELECT 1");
+            return true;
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private void release(PooledConnection pc) {
+        try {
+            if (!pc.broken && !pc.physical.getAutoCommit()) {
+                pc.physical.rollback();
+                pc.physical.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            pc.broken = true;
+        }
+        if (pc.broken || closed) {
+            destroy(pc);
+        } else {
+            pc.lastUsedNanos = System.nanoTime();
+            idle.offerFirst(pc);
+        }
+        permits.release();
+    }
+
+    private void destroy(PooledConnection pc) {
+        totalConnections.decrementAndGet();
+        try {
+            pc.physical.close();
+        } catch (SQLException ignored) {
+            // already gone
+        }
+    }
+
+    private void evictIdle() {
+        long now = System.nanoTime();
+        for (PooledConnection pc : idle) {
+            if (totalConnections.get() <= minSize) {
+                break;
+            }
+            if (now - pc.lastUsedNanos > idleTimeoutNanos && idle.remove(pc)) {
+                destroy(pc);
+            }
+        }
+        try {
+            warmUp();
+        } catch (SQLException e) {
+            // topped up again on the next run, or by borrowers
+        }
+    }
+
+    private final class PooledConnection {
+        final Connection physical;
+        volatile long lastUsedNanos = System.nanoTime();
+        volatile boolean broken;
+        // Only touched by the thread holding the lease; the pool hand-off publishes it.
+        final LinkedHashMap<String, CachedStatement> statements = new LinkedHashMap<String, CachedStatement>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedStatement> eldest) {
+                if (size() <= statementCacheSize) {
+                    return false;
+                }
+                eldest.getValue().evict();
+                return true;
+            }
+        };
+
+        PooledConnection(Connection physical) {
+            this.physical = physical;
+        }
+
+        /** Returns the failure for rethrowing, having marked this connection broken if it was connection-class. */
+        Throwable check(Throwable failure) {
+            if (failure instanceof SQLException) {
+                String state = ((SQLException) failure).getSQLState();
+                if (state != null && state.startsWith("08")) {
+                    broken = true;
+                }
+            }
+            return failure;
+        }
+
+        /**
+         * Statements and result sets come back wrapped so their failures reach check().
+         * owner is the statement proxy a result set came from, if any.
+         */
+        Object guard(Object result, Connection lease, Object owner) {
+            if (result instanceof CallableStatement) {
+                return guard(CallableStatement.class, result, lease, null);
+            }
+            if (result instanceof PreparedStatement) {
+                return guard(PreparedStatement.class, result, lease, null);
+            }
+            if (result instanceof Statement) {
+                return guard(Statement.class, result, lease, null);
+            }
+            if (result instanceof ResultSet) {
+                return guard(ResultSet.class, result, lease, owner);
+            }
+            return result;
+        }
+
+        private Object guard(Class<?> type, Object target, Connection lease, Object owner) {
+            return Proxy.newProxyInstance(ConnectionPool.class.getClassLoader(), new Class<?>[] { type },
+                    new Guard(this, target, lease, owner));
+        }
+
+        PreparedStatement prepare(String sql) throws SQLException {
+            CachedStatement cached = statements.get(sql);
+            if (cached == null && statementCacheSize > 0) {
+                cached = new CachedStatement(physical.prepareStatement(sql));
+                statements.put(sql, cached);
+            }
+            // Same SQL already open on this connection (or caching off): use a one-off statement.
+            if (cached == null || cached.inUse) {
+                return physical.prepareStatement(sql);
+            }
+            return cached.open();
+        }
+
+        Connection lease() {
+            return (Connection) Proxy.newProxyInstance(ConnectionPool.class.getClassLoader(),
+                    new Class<?>[] { Connection.class }, new Lease(this));
+        }
+    }
+
+    private final class Lease implements InvocationHandler {
+        private final PooledConnection pc;
+        private final AtomicBoolean returned = new AtomicBoolean();
+
+        Lease(PooledConnection pc) {
+            this.pc = pc;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (returned.compareAndSet(false, true)) {
+                        release(pc);
+                    }
+                    return null;
+                case "isClosed":
+                    return returned.get() || pc.physical.isClosed();
+                case "unwrap":
+                    if (((Class<?>) args[0]).isInstance(pc.physical)) {
+                        return pc.physical;
+                    }
+                    throw new SQLException("Pooled connection does not wrap " + ((Class<?>) args[0]).getName());
+                case "isWrapperFor":
+                    return ((Class<?>) args[0]).isInstance(pc.physical);
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Pooled" + pc.physical;
+                default:
+                    break;
+            }
+            if (returned.get()) {
+                throw new SQLException("Connection has been returned to the pool", "08003");
+            }
+            try {
+                if (method.getName().equals("prepareStatement") && args.length == 1) {
+                    return pc.guard(pc.prepare((String) args[0]), (Connection) proxy, null);
+                }
+                return pc.guard(method.invoke(pc.physical, args), (Connection) proxy, null);
+            } catch (SQLException e) {
+                throw pc.check(e);
+            } catch (InvocationTargetException e) {
+                throw pc.check(e.getCause());
+            }
+        }
+    }
+
+    /** Forwards to a statement or result set of a leased connection and watches its failures. */
+    private static final class Guard implements InvocationHandler {
+        private final PooledConnection pc;
+        private final Object target;
+        private final Connection lease;
+        private final Object owner;
+        private volatile boolean closed;
+
+        Guard(PooledConnection pc, Object target, Connection lease, Object owner) {
+            this.pc = pc;
+            this.target = target;
+            this.lease = lease;
+            this.owner = owner;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "getConnection":
+                    // never leak the physical connection past the pool
+                    return lease;
+                case "isClosed":
+                    // Statement/ResultSet.isClosed are JDBC 4
+                    return closed || lease.isClosed();
+                case "getStatement":
+                    if (owner != null) {
+                        return owner;
+                    }
+                    break;
+                case "unwrap":
+                    if (((Class<?>) args[0]).isInstance(proxy)) {
+                        return proxy;
+                    }
+                    throw new SQLException("Pooled " + target.getClass().getSimpleName() + " does not wrap "
+                            + ((Class<?>) args[0]).getName());
+                case "isWrapperFor":
+                    return ((Class<?>) args[0]).isInstance(proxy);
+                default:
+                    break;
+            }
+            if (method.getName().equals("close")) {
+                closed = true;
+            }
+            try {
+                // a statement's result sets remember this proxy as their statement
+                return pc.guard(method.invoke(target, args), lease, target instanceof Statement ? proxy : null);
+            } catch (InvocationTargetException e) {
+                throw pc.check(e.getCause());
+            }
+        }
+    }
+
+    /**
+     * A statement kept in a connection's cache. Each open() hands out a proxy whose
+     * close() resets the statement for the next caller instead of closing it.
+     */
+    private static final class CachedStatement {
+        private final PreparedStatement ps;
+        boolean inUse;
+        private boolean evicted;
+
+        CachedStatement(PreparedStatement ps) {
+            this.ps = ps;
+        }
+
+        PreparedStatement open() {
+            inUse = true;
+            return (PreparedStatement) Proxy.newProxyInstance(ConnectionPool.class.getClassLoader(),
+                    new Class<?>[] { PreparedStatement.class }, new Handle());
+        }
+
+        void evict() {
+            evicted = true;
+            if (!inUse) {
+                closeQuietly();
+            }
+        }
+
+        private void closeQuietly() {
+            try {
+                ps.close();
+            } catch (SQLException ignored) {
+                // dropped from the cache anyway
+            }
+        }
+
+        private final class Handle implements InvocationHandler {
+            private boolean closed;
+
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                switch (method.getName()) {
+                    case "close":
+                        if (!closed) {
+                            closed = true;
+                            inUse = false;
+                            if (evicted) {
+                                closeQuietly();
+                            } else {
+                                ps.clearParameters();
+                                ps.setFetchSize(0);
+                                ps.setMaxRows(0);
+                                ps.setQueryTimeout(0);
+                            }
+                        }
+                        return null;
+                    case "isClosed":
+                        return closed;
+                    case "equals":
+                        return proxy == args[0];
+                    case "hashCode":
+                        return System.identityHashCode(proxy);
+                    default:
+                        break;
+                }
+                if (closed) {
+                    throw new SQLException("Statement is closed");
+                }
+                try {
+                    return method.invoke(ps, args);
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+            }
+        }
+    }
+}
@@ -1,21 +1,187 @@
 package com.nssaap.utils;
 
 import java.sql.Connection;
-import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 
+import com.nssaap.metrics.InstrumentedJdbc;
+import com.nssaap.metrics.QueryMetrics;
+
+/**
+ * Entry point for every JDBC connection the webapp and tools use.
+ *
+ * By default there is a single primary at {@code nssaap.db.url}. Read replicas are
+ * added with {@code nssaap.db.replicas} (comma-separated URLs); read-only DAO calls
+ * take {@link #getReadConnection()} and are spread across them, writes take
+ * {@link #getConnection()} and stay on the primary.
+ *
+ * Setting {@code nssaap.db.shards} splits the table by state_code range across
+ * several clusters instead, e.g.
+ * {@code "=jdbc:postgresql://a/NSAP,jdbc:postgresql://a2/NSAP;M=jdbc:postgresql://b/NSAP"}:
+ * each entry is the lowest state_code the shard holds, then its primary URL and
+ * optionally its replicas. The first shard also takes everything below the second
+ * shard's bound. Full listings visit every shard; per-state work goes straight to
+ * the owning one.
+ */
 public class DBConnection {
-    private static final String URL = "jdbc:postgresql://localhost:5432/NSAP";
+    private static final String DRIVER = "org.postgresql.Driver";
+    // prepareThreshold=1: cached statements switch to a named server-side prepare on first use.
+    // connectTimeout/loginTimeout/socketTimeout (seconds) bound how long a dead server can hold a thread.
+    private static final String URL_OPTIONS = "prepareThreshold=1&connectTimeout=5&loginTimeout=5&socketTimeout=60";
+    private static final String URL = System.getProperty("nssaap.db.url", "jdbc:postgresql://localhost:5432/NSAP");
+    private static final String REPLICAS = System.getProperty("nssaap.db.replicas", "");
+    private static final String SHARDS = System.getProperty("nssaap.db.shards", "");
     private static final String USER = "postgres";
     private static final String PASSWORD = "postgres";
 
-    public static Connection getConnection() {
-        Connection conn = null;
-        try {
-            Class.forName("org.postgresql.Driver");
-            conn = DriverManager.getConnection(URL, USER, PASSWORD);
-        } catch (Exception e) {
-            e.printStackTrace();
+    private static final int MIN_POOL_SIZE = 2;
+    private static final int MAX_POOL_SIZE = 20;
+    private static final long BORROW_TIMEOUT_MILLIS = 5000;
+    private static final long IDLE_TIMEOUT_MILLIS = 5 * 60 * 1000;
+    private static final long VALIDATION_INTERVAL_MILLIS = 30 * 1000;
+    private static final int STATEMENT_CACHE_SIZE = 50;
+
+    private static volatile Topology topology;
+    // Set by shutdown(); the pools are never rebuilt after it.
+    private static boolean closed;
+
+    /** A connection to the primary, for writes and anything that must see its own writes. */
+    public static Connection getConnection() throws SQLException {
+        return getShardConnection(0);
+    }
+
+    /** A connection to the primary of the shard that owns the state. */
+    public static Connection getConnection(String stateCode) throws SQLException {
+        return getShardConnection(shardOf(stateCode));
+    }
+
+    /** A connection for read-only work; may be a replica and so slightly behind the primary. */
+    public static Connection getReadConnection() throws SQLException {
+        return getShardReadConnection(0);
+    }
+
+    public static Connection getReadConnection(String stateCode) throws SQLException {
+        return getShardReadConnection(shardOf(stateCode));
+    }
+
+    public static Connection getShardConnection(int shard) throws SQLException {
+        DbCluster cluster = getTopology().shards[shard];
+        if (!QueryMetrics.ENABLED) {
+            return cluster.getWriteConnection();
+        }
+        long start = System.nanoTime();
+        Connection conn = cluster.getWriteConnection();
+        QueryMetrics.getInstance().recordConnect(System.nanoTime() - start);
+        return InstrumentedJdbc.wrap(conn);
+    }
+
+    public static Connection getShardReadConnection(int shard) throws SQLException {
+        DbCluster cluster = getTopology().shards[shard];
+        if (!QueryMetrics.ENABLED) {
+            return cluster.getReadConnection();
+        }
+        long start = System.nanoTime();
+        Connection conn = cluster.getReadConnection();
+        QueryMetrics.getInstance().recordConnect(System.nanoTime() - start);
+        return InstrumentedJdbc.wrap(conn);
+    }
+
+    public static int getShardCount() {
+        return getTopology().shards.length;
+    }
+
+    /** Index of the shard whose state_code range contains the code. */
+    public static int shardOf(String stateCode) {
+        String[] bounds = getTopology().lowerBounds;
+        int shard = 0;
+        while (shard + 1 < bounds.length && stateCode.compareTo(bounds[shard + 1]) >= 0) {
+            shard++;
+        }
+        return shard;
+    }
+
+    /** The first shard's primary pool; with no sharding, the only primary. */
+    public static ConnectionPool getPool() {
+        return getTopology().shards[0].getPrimary();
+    }
+
+    public static List<DbCluster> getClusters() {
+        return Collections.unmodifiableList(Arrays.asList(getTopology().shards));
+    }
+
+    /** Opens every pool's minimum connections; returns how many were opened, or throws the first failure. */
+    public static int warmUp() throws SQLException {
+        int opened = 0;
+        for (DbCluster cluster : getTopology().shards) {
+            opened += cluster.warmUp();
+        }
+        return opened;
+    }
+
+    public static void shutdown() {
+        synchronized (DBConnection.class) {
+            closed = true;
+            if (topology != null) {
+                for (DbCluster cluster : topology.shards) {
+                    cluster.close();
+                }
+                topology = null;
+            }
+        }
+    }
+
+    private static Topology getTopology() {
+        Topology t = topology;
+        if (t == null) {
+            synchronized (DBConnection.class) {
+                t = topology;
+                if (t == null) {
+                    if (closed) {
+                        throw new IllegalStateException("DBConnection has been shut down");
+                    }
+                    t = SHARDS.trim().isEmpty() ? new Topology(URL + "," + REPLICAS) : new Topology(SHARDS);
+                    topology = t;
+                }
+            }
+        }
+        return t;
+    }
+
+    private static ConnectionPool newPool(String url) {
+        String full = url.contains("?") ? url + "&" + URL_OPTIONS : url + "?" + URL_OPTIONS;
+        return new ConnectionPool(DRIVER, full, USER, PASSWORD, MIN_POOL_SIZE, MAX_POOL_SIZE,
+                BORROW_TIMEOUT_MILLIS, IDLE_TIMEOUT_MILLIS, VALIDATION_INTERVAL_MILLIS, STATEMENT_CACHE_SIZE);
+    }
+
+    private static final class Topology {
+        final String[] lowerBounds;
+        final DbCluster[] shards;
+
+        /** Parses "bound=primary[,replica...];bound=..."; a spec without '=' is a single unsharded cluster. */
+        Topology(String spec) {
+            String[] entries = spec.split(";");
+            lowerBounds = new String[entries.length];
+            shards = new DbCluster[entries.length];
+            for (int i = 0; i < entries.length; i++) {
+                String entry = entries[i].trim();
+                int eq = entry.indexOf('=');
+                boolean bounded = eq >= 0 && !entry.substring(0, eq).contains(":");
+                lowerBounds[i] = bounded ? entry.substring(0, eq).trim() : "";
+                if (i > 0 && lowerBounds[i].compareTo(lowerBounds[i - 1]) <= 0) {
+                    throw new IllegalArgumentException("nssaap.db.shards bounds must be ascending: " + spec);
+                }
+                String[] urls = (bounded ? entry.substring(eq + 1) : entry).split(",");
+                List<ConnectionPool> replicas = new ArrayList<>();
+                for (int u = 1; u < urls.length; u++) {
+                    if (!urls[u].trim().isEmpty()) {
+                        replicas.add(newPool(urls[u].trim()));
+                    }
+                }
+                shards[i] = new DbCluster(entries.length == 1 ? "main" : "shard" + i, newPool(urls[0].trim()), replicas);
+            }
         }
-        return conn;
     }
 }
@@ -0,0 +1,50 @@
+package com.nssaap.utils;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executor for blocking DAO work so Tomcat's connector threads are not held
+ * during JDBC I/O. Uses a virtual thread per task when the JDK has them (21+),
+ * otherwise a fixed pool sized to the connection pool with a bounded queue.
+ */
+public class DaoExecutor {
+    private static final int QUEUE_CAPACITY = 1000;
+
+    private static final ExecutorService EXECUTOR = create();
+
+    public static ExecutorService get() {
+        return EXECUTOR;
+    }
+
+    /** Stops the workers at undeploy; queued and running loads are interrupted. */
+    public static void shutdown() {
+        EXECUTOR.shutdownNow();
+    }
+
+    public static boolean isVirtual() {
+        return !(EXECUTOR instanceof ThreadPoolExecutor);
+    }
+
+    private static ExecutorService create() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            // pre-21 JDK
+        }
+        int threads = DBConnection.getPool().getMaxSize();
+        AtomicInteger count = new AtomicInteger();
+        return new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(QUEUE_CAPACITY), r -> {
+                    Thread t = new Thread(r, "nssaap-dao-" + count.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+    }
+}
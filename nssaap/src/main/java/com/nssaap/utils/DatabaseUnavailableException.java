@@ -0,0 +1,39 @@
+package com.nssaap.utils;
+
+import java.sql.SQLTransientException;
+
+/**
+ * The database call was not attempted, or gave up, because PostgreSQL is unavailable or saturated.
+ * The SQLState is never 08xxx, so nothing that classifies by SQLState mistakes our own load
+ * shedding for a dead server: a full bulkhead reports 53000 (insufficient resources) and an
+ * open circuit NSA01, a class of our own.
+ */
+public class DatabaseUnavailableException extends SQLTransientException {
+    private static final long serialVersionUID = 1L;
+
+    public enum Reason {
+        CIRCUIT_OPEN("NSA01"),
+        BULKHEAD_FULL("53000");
+
+        private final String sqlState;
+
+        Reason(String sqlState) {
+            this.sqlState = sqlState;
+        }
+
+        public String getSqlState() {
+            return sqlState;
+        }
+    }
+
+    private final Reason reason;
+
+    public DatabaseUnavailableException(Reason reason, String message) {
+        super(message, reason.getSqlState());
+        this.reason = reason;
+    }
+
+    public Reason getReason() {
+        return reason;
+    }
+}
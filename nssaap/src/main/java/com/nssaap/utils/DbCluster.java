@@ -0,0 +1,240 @@
+package com.nssaap.utils;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * One primary database plus any number of read replicas, each behind its own
+ * {@link ConnectionPool}.
+ *
+ * Writes always borrow from the primary. Reads pick a replica at random, weighted
+ * by the inverse of its smoothed round-trip latency, so a slow replica gets less
+ * traffic and read capacity grows with every replica added. A replica that cannot be
+ * connected to (SQLState 08xxx) or fails a health probe is skipped until its
+ * back-off expires. A replica whose pool is merely saturated stays up and the read
+ * tries the next one without waiting; with no replica able to serve, reads fall back
+ * to the primary, and only that borrow waits for a free connection.
+ */
+public class DbCluster {
+    private static final long PROBE_INTERVAL_MILLIS = Long.getLong("nssaap.db.replicaProbeMillis", 2000L);
+    private static final long DOWN_MILLIS = Long.getLong("nssaap.db.replicaDownMillis", 10000L);
+    // Weight of the newest sample in the latency average.
+    private static final double EWMA_ALPHA = 0.2;
+    // Keeps one very fast probe from starving the other replicas.
+    private static final double MIN_LATENCY_MILLIS = 0.5;
+    private static final Log LOG = LogFactory.getLog(DbCluster.class);
+
+    private final String name;
+    private final ConnectionPool primary;
+    private final List<Replica> replicas;
+    private final ScheduledExecutorService prober;
+
+    public DbCluster(String name, ConnectionPool primary, List<ConnectionPool> replicaPools) {
+        this.name = name;
+        this.primary = primary;
+        List<Replica> list = new ArrayList<>(replicaPools.size());
+        for (ConnectionPool pool : replicaPools) {
+            list.add(new Replica(pool));
+        }
+        this.replicas = Collections.unmodifiableList(list);
+        if (replicas.isEmpty()) {
+            this.prober = null;
+        } else {
+            this.prober = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "nssaap-replica-probe-" + name);
+                t.setDaemon(true);
+                return t;
+            });
+            prober.scheduleWithFixedDelay(this::probe, 0, PROBE_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public ConnectionPool getPrimary() {
+        return primary;
+    }
+
+    public List<Replica> getReplicas() {
+        return replicas;
+    }
+
+    public Connection getWriteConnection() throws SQLException {
+        return primary.borrow();
+    }
+
+    /** A replica connection, or a primary one when every replica is down or saturated. */
+    public Connection getReadConnection() throws SQLException {
+        if (replicas.isEmpty()) {
+            return primary.borrow();
+        }
+        long now = System.nanoTime();
+        double[] weights = new double[replicas.size()];
+        double total = 0;
+        int live = 0;
+        for (int i = 0; i < weights.length; i++) {
+            Replica r = replicas.get(i);
+            if (r.isUp(now)) {
+                weights[i] = 1.0 / Math.max(MIN_LATENCY_MILLIS, r.latencyMillis);
+                total += weights[i];
+                live++;
+            }
+        }
+        while (live > 0) {
+            double pick = ThreadLocalRandom.current().nextDouble() * total;
+            int i = -1;
+            for (int j = 0; j < weights.length; j++) {
+                if (weights[j] == 0) {
+                    continue;
+                }
+                i = j;
+                if (pick < weights[j]) {
+                    break;
+                }
+                pick -= weights[j];
+            }
+            Replica r = replicas.get(i);
+            try {
+                Connection conn = r.pool.tryBorrow();
+                if (conn != null) {
+                    return conn;
+                }
+            } catch (SQLException e) {
+                if (isConnectionFailure(e)) {
+                    r.markDown(now);
+                }
+            }
+            total -= weights[i];
+            weights[i] = 0;
+            live--;
+        }
+        return primary.borrow();
+    }
+
+    private static boolean isConnectionFailure(SQLException e) {
+        String state = e.getSQLState();
+        return !(e instanceof PoolExhaustedException) && state != null && state.startsWith("08");
+    }
+
+    /**
+     * Warms the primary and every replica and returns the connections opened. Every
+     * pool is tried; the first failure is thrown at the end, and a replica that could
+     * not be reached is marked down.
+     */
+    public int warmUp() throws SQLException {
+        int opened = 0;
+        SQLException failure = null;
+        try {
+            opened += primary.warmUp();
+        } catch (SQLException e) {
+            failure = e;
+        }
+        for (Replica r : replicas) {
+            try {
+                opened += r.pool.warmUp();
+            } catch (SQLException e) {
+                r.markDown(System.nanoTime());
+                if (failure == null) {
+                    failure = e;
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+        return opened;
+    }
+
+    public void close() {
+        if (prober != null) {
+            prober.shutdownNow();
+        }
+        primary.close();
+        for (Replica r : replicas) {
+            r.pool.close();
+        }
+    }
+
+    private void probe() {
+        for (Replica r : replicas) {
+            long start = System.nanoTime();
+            try (Connection conn = r.pool.tryBorrow()) {
+                if (conn == null) {
+                    // busy, not down: skip this round
+                    continue;
+                }
+                try (Statement st = conn.createStatement()) {
+                    st.execute("SELECT 1");
+                }
+                r.recordLatency(start, (System.nanoTime() - start) / 1e6);
+            } catch (SQLException e) {
+                r.markDown(System.nanoTime());
+            } catch (RuntimeException e) {
+                LOG.warn("Replica probe for " + name + " failed", e);
+                r.markDown(System.nanoTime());
+            }
+        }
+    }
+
+    /** Health and smoothed probe latency of one replica. */
+    public static final class Replica {
+        private final ConnectionPool pool;
+        private volatile double latencyMillis = 1.0;
+        private volatile long downUntilNanos;
+        private volatile boolean down;
+        // Guarded by this; when the replica was last marked down.
+        private long downSinceNanos;
+
+        Replica(ConnectionPool pool) {
+            this.pool = pool;
+        }
+
+        public ConnectionPool getPool() {
+            return pool;
+        }
+
+        public double getLatencyMillis() {
+            return latencyMillis;
+        }
+
+        public boolean isUp() {
+            return isUp(System.nanoTime());
+        }
+
+        boolean isUp(long now) {
+            return !down || now - downUntilNanos >= 0;
+        }
+
+        synchronized void markDown(long now) {
+            downSinceNanos = System.nanoTime();
+            downUntilNanos = now + TimeUnit.MILLISECONDS.toNanos(DOWN_MILLIS);
+            down = true;
+        }
+
+        /**
+         * A probe that started at startNanos succeeded. It only brings the replica back
+         * if nobody marked it down after the probe started, so a late success cannot
+         * undo a fresh ejection.
+         */
+        synchronized void recordLatency(long startNanos, double millis) {
+            if (down && downSinceNanos - startNanos > 0) {
+                return;
+            }
+            latencyMillis = down ? millis : latencyMillis + EWMA_ALPHA * (millis - latencyMillis);
+            down = false;
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.nssaap.utils;
+
+import java.sql.SQLException;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTimeoutException;
+import java.sql.SQLTransientException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Resilience wrapper for the request-path DB calls.
+ *
+ * A bulkhead caps how many of them run at once (below the pool size, so the
+ * change feed, ingest and reports keep connections) and sheds load after a short
+ * wait instead of queueing. A circuit breaker fails fast while PostgreSQL is down
+ * or timing out. Both surface as {@link DatabaseUnavailableException}.
+ */
+public class DbGuard {
+    public interface SqlCall<T> {
+        T call() throws SQLException;
+    }
+
+    private static final int MAX_CONCURRENT = Integer.getInteger("nssaap.db.maxConcurrentCalls", 16);
+    private static final long BULKHEAD_WAIT_MILLIS = 200;
+    private static final int FAILURE_THRESHOLD = 5;
+    private static final long OPEN_MILLIS = 10 * 1000;
+
+    private static final DbGuard INSTANCE = new DbGuard(MAX_CONCURRENT, BULKHEAD_WAIT_MILLIS,
+            new CircuitBreaker(FAILURE_THRESHOLD, OPEN_MILLIS));
+
+    private final Semaphore bulkhead;
+    private final long bulkheadWaitMillis;
+    private final CircuitBreaker breaker;
+
+    public DbGuard(int maxConcurrent, long bulkheadWaitMillis, CircuitBreaker breaker) {
+        this.bulkhead = new Semaphore(maxConcurrent);
+        this.bulkheadWaitMillis = bulkheadWaitMillis;
+        this.breaker = breaker;
+    }
+
+    public static DbGuard getInstance() {
+        return INSTANCE;
+    }
+
+    public <T> T call(SqlCall<T> call) throws SQLException {
+        if (!breaker.allowRequest()) {
+            throw new DatabaseUnavailableException(DatabaseUnavailableException.Reason.CIRCUIT_OPEN,
+                    "Database circuit is open; failing fast");
+        }
+        boolean acquired;
+        try {
+            acquired = bulkhead.tryAcquire(bulkheadWaitMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        }
+        if (!acquired) {
+            breaker.recordIgnored();
+            throw new DatabaseUnavailableException(DatabaseUnavailableException.Reason.BULKHEAD_FULL,
+                    "Too many concurrent database calls");
+        }
+        try {
+            T result = call.call();
+            breaker.recordSuccess();
+            return result;
+        } catch (SQLException e) {
+            if (isLocalSaturation(e)) {
+                breaker.recordIgnored();
+            } else if (isOutage(e)) {
+                breaker.recordFailure();
+            } else {
+                breaker.recordSuccess();
+            }
+            throw e;
+        } catch (RuntimeException | Error e) {
+            breaker.recordIgnored();
+            throw e;
+        } finally {
+            bulkhead.release();
+        }
+    }
+
+    public CircuitBreaker.State getCircuitState() {
+        return breaker.getState();
+    }
+
+    public int getAvailableSlots() {
+        return bulkhead.availablePermits();
+    }
+
+    public int getMaxConcurrent() {
+        return MAX_CONCURRENT;
+    }
+
+    // Our own pool or bulkhead being full says nothing about PostgreSQL's health, so
+    // it neither trips nor resets the breaker.
+    private static boolean isLocalSaturation(SQLException e) {
+        return e instanceof PoolExhaustedException || e instanceof DatabaseUnavailableException;
+    }
+
+    // Connection failures, timeouts and cancellations count against the breaker;
+    // errors in the SQL itself mean the database answered.
+    private static boolean isOutage(SQLException e) {
+        if (e instanceof SQLTransientException || e instanceof SQLRecoverableException || e instanceof SQLTimeoutException) {
+            return true;
+        }
+        String state = e.getSQLState();
+        return state == null || state.startsWith("08") || state.startsWith("57") || state.startsWith("53");
+    }
+}
@@ -0,0 +1,61 @@
+package com.nssaap.utils;
+
+import java.io.IOException;
+import java.io.Writer;
+import com.nssaap.dao.PensionersRowHandler;
+import com.nssaap.model.PensionerRecord;
+
+/**
+ * Writes each streamed pensioner row straight out as an HTML table row,
+ * flushing every few rows so the browser can render while the query runs.
+ */
+public class PensionersTableWriter implements PensionersRowHandler {
+    private static final int FLUSH_EVERY = 100;
+
+    private final Writer out;
+    private int rows;
+
+    public PensionersTableWriter(Writer out) {
+        this.out = out;
+    }
+
+    @Override
+    public void handleRow(PensionerRecord row) throws IOException {
+        out.write("<tr>");
+        cell(row.getStateCode());
+        cell(row.getStateName());
+        cell(row.getIgndpsPensionerLastUpdateDate());
+        cell(row.getIgnoapsPensionerLastUpdateDate());
+        cell(row.getIgnwpsPensionerLastUpdateDate());
+        out.write("</tr>\n");
+        if (++rows % FLUSH_EVERY == 0) {
+            out.flush();
+        }
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    private void cell(String value) throws IOException {
+        out.write("<td>");
+        if (value != null) {
+            escape(value);
+        }
+        out.write("</td>");
+    }
+
+    private void escape(String value) throws IOException {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '<': out.write("&lt;"); break;
+                case '>': out.write("&gt;"); break;
+                case '&': out.write("&amp;"); break;
+                case '"': out.write("&quot;"); break;
+                case '\'': out.write("&#39;"); break;
+                default: out.write(c);
+            }
+        }
+    }
+}
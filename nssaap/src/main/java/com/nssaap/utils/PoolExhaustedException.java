@@ -0,0 +1,21 @@
+package com.nssaap.utils;
+
+import java.sql.SQLTransientConnectionException;
+
+/**
+ * No pooled connection came free within the borrow timeout. The database itself
+ * may be perfectly healthy; this pool is just saturated, so callers must not treat
+ * it as a connection failure.
+ */
+public class PoolExhaustedException extends SQLTransientConnectionException {
+    private static final long serialVersionUID = 1L;
+
+    public PoolExhaustedException(String message) {
+        // too_many_connections: insufficient resources, not a connection exception (08)
+        super(message, "53300");
+    }
+
+    public PoolExhaustedException(String message, Throwable cause) {
+        super(message, "53300", cause);
+    }
+}
@@ -0,0 +1,73 @@
+package com.nssaap.utils;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs one call per state_code shard in parallel and gathers the results in shard
+ * order. With a single shard the call runs on the caller's thread.
+ *
+ * Uses its own threads rather than {@link DaoExecutor}: callers are often already
+ * running on a DAO thread, and waiting there on tasks queued behind them could
+ * deadlock a saturated fixed pool.
+ */
+public final class ShardScatter {
+    private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+    private static final ExecutorService WORKERS = Executors.newCachedThreadPool(r -> {
+        Thread t = new Thread(r, "nssaap-shard-" + THREAD_COUNT.incrementAndGet());
+        t.setDaemon(true);
+        return t;
+    });
+
+    public interface ShardCall<T> {
+        T call(int shard) throws SQLException;
+    }
+
+    private ShardScatter() {
+    }
+
+    public static void shutdown() {
+        WORKERS.shutdownNow();
+    }
+
+    public static <T> List<T> gather(ShardCall<T> call) throws SQLException {
+        int shards = DBConnection.getShardCount();
+        if (shards == 1) {
+            return Collections.singletonList(call.call(0));
+        }
+        List<Future<T>> futures = new ArrayList<>(shards);
+        for (int i = 0; i < shards; i++) {
+            int shard = i;
+            futures.add(WORKERS.submit(() -> call.call(shard)));
+        }
+        List<T> results = new ArrayList<>(shards);
+        try {
+            for (Future<T> f : futures) {
+                results.add(f.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for shard results", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof SQLException) {
+                throw (SQLException) e.getCause();
+            }
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new SQLException("Shard query failed", e.getCause());
+        } finally {
+            for (Future<T> f : futures) {
+                f.cancel(true);
+            }
+        }
+        return results;
+    }
+}
@@ -3,6 +3,10 @@
 <%@ taglib uri="http://struts.apache.org/tags-html" prefix="html" %>
 <%@ taglib uri="http://struts.apache.org/tags-bean" prefix="bean" %>
 <%@ taglib uri="http://struts.apache.org/tags-logic" prefix="logic" %>
+<%-- Opened directly (welcome page): let the action load the page through the cache. --%>
+<logic:notPresent name="pensionersForm">
+    <jsp:forward page="/showPensioners.do"/>
+</logic:notPresent>
 
 <html>
 <head>
@@ -10,6 +14,11 @@
 </head>
 <body>
     <h2>Pensioners Transactions Last Update Details</h2>
+    <logic:present name="pensionersForm">
+        <logic:equal name="pensionersForm" property="stale" value="true">
+            <p>The database is unavailable; showing the last data loaded, which may be out of date.</p>
+        </logic:equal>
+    </logic:present>
     <table border="1">
         <tr>
             <th>State Code</th>
@@ -18,15 +27,22 @@
             <th>Last Update Date (OAPS)</th>
             <th>Last Update Date (WPS)</th>
         </tr>
+        <logic:present name="pensionersForm">
         <logic:iterate id="row" name="pensionersForm" property="pensionersData">
             <tr>
-                <td><bean:write name="row" property="state_code"/></td>
-                <td><bean:write name="row" property="state_name"/></td>
-                <td><bean:write name="row" property="igndps_pensioner_last_update_date"/></td>
-                <td><bean:write name="row" property="ignoaps_pensioner_last_update_date"/></td>
-                <td><bean:write name="row" property="ignwps_pensioner_last_update_date"/></td>
+                <td><bean:write name="row" property="stateCode"/></td>
+                <td><bean:write name="row" property="stateName"/></td>
+                <td><bean:write name="row" property="igndpsPensionerLastUpdateDate"/></td>
+                <td><bean:write name="row" property="ignoapsPensionerLastUpdateDate"/></td>
+                <td><bean:write name="row" property="ignwpsPensionerLastUpdateDate"/></td>
             </tr>
         </logic:iterate>
+        </logic:present>
     </table>
+    <logic:present name="pensionersForm">
+        <logic:notEmpty name="pensionersForm" property="nextPageQuery">
+            <a href="showPensioners.do?<bean:write name="pensionersForm" property="nextPageQuery"/>">Next page</a>
+        </logic:notEmpty>
+    </logic:present>
 </body>
 </html>
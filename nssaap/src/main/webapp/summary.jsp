@@ -0,0 +1,44 @@
+<%@ page language="java" contentType="text/html; charset=UTF-8" %>
+<%@ taglib uri="http://struts.apache.org/tags-bean" prefix="bean" %>
+<%@ taglib uri="http://struts.apache.org/tags-logic" prefix="logic" %>
+
+<html>
+<head>
+    <title>Pensioners Update Summary</title>
+</head>
+<body>
+    <h2>Pensioners Update Summary</h2>
+    <table border="1">
+        <tr>
+            <th rowspan="2">Scheme</th>
+            <th colspan="3">Pensioner data (days since update)</th>
+            <th colspan="3">Transaction data (days since update)</th>
+        </tr>
+        <tr>
+            <th>States</th><th>Avg</th><th>Max</th>
+            <th>States</th><th>Avg</th><th>Max</th>
+        </tr>
+        <logic:iterate id="lag" name="pensionersSummary" property="schemes">
+            <tr>
+                <td><bean:write name="lag" property="scheme"/></td>
+                <td><bean:write name="lag" property="pensionerStates"/></td>
+                <td><bean:write name="lag" property="pensionerLagAvg"/></td>
+                <td><bean:write name="lag" property="pensionerLagMax"/></td>
+                <td><bean:write name="lag" property="transectionStates"/></td>
+                <td><bean:write name="lag" property="transectionLagAvg"/></td>
+                <td><bean:write name="lag" property="transectionLagMax"/></td>
+            </tr>
+        </logic:iterate>
+        <tr>
+            <th>Status</th>
+            <td colspan="6">
+                <logic:iterate id="status" name="pensionersSummary" property="statusCounts">
+                    <bean:write name="status" property="key"/>: <bean:write name="status" property="value"/>&nbsp;
+                </logic:iterate>
+            </td>
+        </tr>
+    </table>
+    <p><bean:write name="pensionersSummary" property="rows"/> rows in
+       <bean:write name="pensionersSummary" property="elapsedMillis"/> ms</p>
+</body>
+</html>
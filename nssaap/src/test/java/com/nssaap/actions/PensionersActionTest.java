@@ -0,0 +1,186 @@
+package com.nssaap.actions;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.struts.action.ActionForward;
+import org.apache.struts.action.ActionMapping;
+
+import com.nssaap.forms.PensionersForm;
+import com.nssaap.utils.FakeJdbc;
+
+/**
+ * Checks that an async listing request is finished exactly once when the worker and
+ * the container's timeout race. The database is {@link FakeJdbc}, whose execute gate
+ * holds the worker's query while the timeout fires. There is no test framework in
+ * this tree, so run it directly: java com.nssaap.actions.PensionersActionTest
+ */
+public class PensionersActionTest {
+    public static void main(String[] args) throws Exception {
+        System.setProperty("nssaap.db.url", FakeJdbc.URL);
+        FakeJdbc.reset();
+        // Nothing is cached until the last case, so the first two really go to the database.
+        workerFailureThenTimeout();
+        timeoutThenWorkerSuccess();
+        workerSuccessThenTimeoutAndError();
+        System.out.println("PensionersActionTest passed");
+    }
+
+    // The action prints the worker's SQLException; that trace is expected.
+    static void workerFailureThenTimeout() throws Exception {
+        FakeJdbc.failExecute = "42P01";
+        Exchange exchange = new Exchange();
+        exchange.run();
+        exchange.awaitCompletions(1);
+        exchange.listener.onTimeout(exchange.event());
+        check(exchange.errors.equals(list(HttpServletResponse.SC_SERVICE_UNAVAILABLE)),
+                "one 503 from the worker, got " + exchange.errors);
+        check(exchange.completions.get() == 1, "completed once, got " + exchange.completions.get());
+        check(exchange.dispatches.isEmpty(), "no dispatch after a failed load");
+        FakeJdbc.failExecute = null;
+    }
+
+    static void timeoutThenWorkerSuccess() throws Exception {
+        FakeJdbc.rows = 0;
+        FakeJdbc.executeGate = new CountDownLatch(1);
+        Exchange exchange = new Exchange();
+        exchange.run();
+        exchange.listener.onTimeout(exchange.event());
+        check(exchange.errors.equals(list(HttpServletResponse.SC_SERVICE_UNAVAILABLE)),
+                "timeout answers 503, got " + exchange.errors);
+        check("10".equals(exchange.headers.get("Retry-After")), "timeout sets Retry-After");
+        check(exchange.completions.get() == 1, "timeout completes the request");
+        FakeJdbc.executeGate.countDown();
+        check(exchange.form.loaded.await(10, TimeUnit.SECONDS), "worker finished its load");
+        // the worker decides right after loadPage returns; give it the chance to misbehave
+        Thread.sleep(200);
+        check(exchange.dispatches.isEmpty(), "late worker must not dispatch, got " + exchange.dispatches);
+        check(exchange.completions.get() == 1, "late worker must not complete again");
+        check(exchange.errors.size() == 1, "late worker must not touch the response");
+        FakeJdbc.executeGate = null;
+    }
+
+    static void workerSuccessThenTimeoutAndError() throws Exception {
+        Exchange exchange = new Exchange();
+        exchange.run();
+        exchange.awaitCompletions(1);
+        check(exchange.dispatches.equals(list("/pages/pensioners.jsp")), "dispatched to success, got " + exchange.dispatches);
+        exchange.listener.onTimeout(exchange.event());
+        exchange.listener.onError(exchange.event());
+        check(exchange.errors.isEmpty(), "no error after a dispatch, got " + exchange.errors);
+        check(exchange.completions.get() == 1, "dispatch is the only completion");
+    }
+
+    /** One request through the action, with recording proxies for the servlet objects. */
+    private static final class Exchange {
+        final RecordingForm form = new RecordingForm();
+        final List<Object> dispatches = new CopyOnWriteArrayList<>();
+        final List<Object> errors = new CopyOnWriteArrayList<>();
+        final Map<String, String> headers = new ConcurrentHashMap<>();
+        final AtomicInteger completions = new AtomicInteger();
+        volatile AsyncListener listener;
+        HttpServletResponse response;
+        AsyncContext async;
+
+        void run() throws Exception {
+            response = proxy(HttpServletResponse.class, (proxy, method, args) -> {
+                switch (method.getName()) {
+                    case "sendError":
+                        errors.add(args[0]);
+                        return null;
+                    case "setHeader":
+                        headers.put((String) args[0], (String) args[1]);
+                        return null;
+                    default:
+                        return null;
+                }
+            });
+            async = proxy(AsyncContext.class, (proxy, method, args) -> {
+                switch (method.getName()) {
+                    case "addListener":
+                        listener = (AsyncListener) args[0];
+                        return null;
+                    case "getResponse":
+                        return response;
+                    case "dispatch":
+                        dispatches.add(args[0]);
+                        completions.incrementAndGet();
+                        return null;
+                    case "complete":
+                        completions.incrementAndGet();
+                        return null;
+                    default:
+                        return null;
+                }
+            });
+            HttpServletRequest request = proxy(HttpServletRequest.class, (proxy, method, args) -> {
+                switch (method.getName()) {
+                    case "isAsyncSupported":
+                        return true;
+                    case "startAsync":
+                        return async;
+                    default:
+                        return null;
+                }
+            });
+            ActionMapping mapping = new ActionMapping();
+            mapping.addForwardConfig(new ActionForward("success", "/pages/pensioners.jsp", false));
+            ActionForward forward = new PensionersAction().execute(mapping, form, request, response);
+            check(forward == null, "async path returns no forward");
+            check(listener != null, "listener registered");
+        }
+
+        AsyncEvent event() {
+            return new AsyncEvent(async);
+        }
+
+        void awaitCompletions(int expected) throws InterruptedException {
+            long deadline = System.currentTimeMillis() + 10000;
+            while (completions.get() < expected && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            check(completions.get() >= expected, "request never completed");
+        }
+    }
+
+    /** Tells the check when the worker's load has reached the form. */
+    private static final class RecordingForm extends PensionersForm {
+        private static final long serialVersionUID = 1L;
+        final CountDownLatch loaded = new CountDownLatch(1);
+
+        @Override
+        public void setStale(boolean stale) {
+            super.setStale(stale);
+            loaded.countDown();
+        }
+    }
+
+    private static List<Object> list(Object... items) {
+        return Arrays.asList(items);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+        return (T) Proxy.newProxyInstance(PensionersActionTest.class.getClassLoader(), new Class<?>[] { type }, handler);
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new AssertionError(message);
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package com.nssaap.archive;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.nssaap.model.PensionerRecord;
+
+/**
+ * Round-trips snapshots through {@link PensionersColumnarWriter} and
+ * {@link PensionersColumnarReader}, checks countAdvancedSince between two of them,
+ * and feeds the reader truncated and corrupted files. There is no test framework in
+ * this tree, so run it directly: java com.nssaap.archive.PensionersColumnarTest
+ */
+public class PensionersColumnarTest {
+    private static final int DAY = 19800;
+    private static final int NO = PensionerRecord.NO_DATE;
+
+    public static void main(String[] args) throws Exception {
+        Path dir = Files.createTempDirectory("nssaap-columnar");
+        try {
+            writeThenReadGivesBackEveryValue(dir.resolve("round-trip.col"));
+            countAdvancedSinceJoinsOnStateCode(dir.resolve("older.col"), dir.resolve("newer.col"));
+            emptySnapshotRoundTrips(dir.resolve("empty.col"));
+            corruptFilesFailWithIOException(dir.resolve("source.col"), dir.resolve("corrupt.col"));
+        } finally {
+            for (Path p : Files.newDirectoryStream(dir)) {
+                Files.delete(p);
+            }
+            Files.delete(dir);
+        }
+        System.out.println("PensionersColumnarTest passed");
+    }
+
+    static void writeThenReadGivesBackEveryValue(Path file) throws IOException {
+        List<PensionerRecord> rows = new ArrayList<>();
+        rows.add(record("AP", "Andhra Pradesh", "AP", "Active", DAY - 1, NO, DAY - 30, DAY, DAY - 2, NO));
+        rows.add(record("KA", "Karnataka", null, "Inactive", NO, NO, NO, NO, NO, NO));
+        rows.add(record("TN", "Tamil Nadu", "TN", "Active", DAY - 400, DAY - 5, DAY, DAY - 1, DAY, DAY - 7));
+        // 70 more rows so the status bitmaps span two words
+        for (int i = 0; i < 70; i++) {
+            rows.add(record("X" + i, "State " + i, "S" + i, i % 3 == 0 ? "Inactive" : "Active",
+                    DAY - i, DAY - 2 * i, NO, DAY, DAY - i % 5, i % 2 == 0 ? NO : DAY - 1));
+        }
+        PensionersColumnarWriter.write(rows, DAY, file);
+        try (PensionersColumnarReader reader = new PensionersColumnarReader(file)) {
+            check(reader.getRowCount() == rows.size(), "row count " + reader.getRowCount());
+            check(reader.getSnapshotEpochDay() == DAY, "snapshot day " + reader.getSnapshotEpochDay());
+            int active = reader.statusSlot("Active");
+            int inactive = reader.statusSlot("Inactive");
+            check(active >= 0 && inactive >= 0 && reader.statusSlot("Closed") == -1, "status slots");
+            int activeRows = 0;
+            for (int i = 0; i < rows.size(); i++) {
+                PensionerRecord r = rows.get(i);
+                check(reader.getStateCode(i).equals(r.getStateCode()), "code of row " + i);
+                check(reader.getStateName(i).equals(r.getStateName()), "name of row " + i);
+                String shortName = r.getStateShortName() == null ? "" : r.getStateShortName();
+                check(reader.getStateShortName(i).equals(shortName), "short name of row " + i);
+                for (DateColumn col : DateColumn.values()) {
+                    check(reader.getDate(col, i) == col.of(r), col + " of row " + i);
+                }
+                boolean isActive = r.getStateStatus().equals("Active");
+                check(reader.hasStatus(active, i) == isActive && reader.hasStatus(inactive, i) != isActive,
+                        "status of row " + i);
+                activeRows += isActive ? 1 : 0;
+            }
+            check(reader.countStatus(active) == activeRows, "active count " + reader.countStatus(active));
+            check(reader.countStatus(inactive) == rows.size() - activeRows, "inactive count");
+            check(reader.countStatus(-1) == 0, "unknown status counts nothing");
+            check(reader.maxLagDays(DateColumn.IGNDPS_PENSIONER) == 400, "IGNDPS lag");
+            check(reader.maxLagDays(DateColumn.IGNWPS_PENSIONER) == 30, "IGNWPS lag");
+        }
+    }
+
+    static void countAdvancedSinceJoinsOnStateCode(Path olderFile, Path newerFile) throws IOException {
+        List<PensionerRecord> older = Arrays.asList(
+                record("TN", "Tamil Nadu", "TN", "Active", DAY - 10, NO, NO, NO, NO, NO),
+                record("AP", "Andhra Pradesh", "AP", "Active", DAY - 10, NO, NO, NO, NO, NO),
+                record("KA", "Karnataka", "KA", "Active", DAY - 10, NO, NO, NO, NO, NO),
+                record("GA", "Goa", "GA", "Active", DAY - 10, NO, NO, NO, NO, NO),
+                record("MH", "Maharashtra", "MH", "Active", NO, NO, NO, NO, NO, NO));
+        // Different row order and dictionary ids: names come first here.
+        List<PensionerRecord> newer = Arrays.asList(
+                record("AP", "AP", "Andhra Pradesh", "Inactive", DAY - 1, NO, NO, NO, NO, NO),
+                record("KL", "Kerala", "KL", "Active", DAY, NO, NO, NO, NO, NO),
+                record("KA", "Karnataka", "KA", "Active", DAY - 10, NO, NO, NO, NO, NO),
+                record("TN", "Tamil Nadu", "TN", "Active", DAY - 20, NO, NO, NO, NO, NO),
+                record("GA", "Goa", "GA", "Active", NO, NO, NO, NO, NO, NO),
+                record("MH", "Maharashtra", "MH", "Active", DAY - 3, NO, NO, NO, NO, NO));
+        PensionersColumnarWriter.write(older, DAY - 10, olderFile);
+        PensionersColumnarWriter.write(newer, DAY, newerFile);
+        try (PensionersColumnarReader o = new PensionersColumnarReader(olderFile);
+             PensionersColumnarReader n = new PensionersColumnarReader(newerFile)) {
+            // AP moved forward and MH went from no date to a date; KA is unchanged, TN went
+            // back, GA lost its date and KL has nothing to compare with.
+            int advanced = n.countAdvancedSince(o, DateColumn.IGNDPS_PENSIONER);
+            check(advanced == 2, "advanced since older: " + advanced);
+            check(o.countAdvancedSince(n, DateColumn.IGNDPS_PENSIONER) == 2, "advanced the other way (TN, GA)");
+            check(n.countAdvancedSince(o, DateColumn.IGNOAPS_PENSIONER) == 0, "all-null column");
+            check(n.countAdvancedSince(n, DateColumn.IGNDPS_PENSIONER) == 0, "against itself");
+        }
+    }
+
+    static void emptySnapshotRoundTrips(Path file) throws IOException {
+        PensionersColumnarWriter.write(new ArrayList<PensionerRecord>(), DAY, file);
+        try (PensionersColumnarReader reader = new PensionersColumnarReader(file)) {
+            check(reader.getRowCount() == 0, "empty row count");
+            check(reader.statusSlot("Active") == -1, "no statuses");
+            check(reader.maxLagDays(DateColumn.IGNDPS_PENSIONER) == -1, "no lag");
+        }
+    }
+
+    static void corruptFilesFailWithIOException(Path source, Path corrupt) throws IOException {
+        List<PensionerRecord> rows = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            rows.add(record("S" + i, "State " + i, "S" + i, "Active", DAY - i, NO, NO, NO, NO, NO));
+        }
+        PensionersColumnarWriter.write(rows, DAY, source);
+        byte[] good = Files.readAllBytes(source);
+        int openFiles = openFiles();
+
+        for (int len = 0; len < good.length; len++) {
+            Files.write(corrupt, Arrays.copyOf(good, len));
+            expectIOException(corrupt, "truncated to " + len + " bytes");
+        }
+
+        int dictionaryStart = PensionersColumnarWriter.HEADER_BYTES;
+        expectIOException(write(corrupt, good, dictionaryStart, Integer.MAX_VALUE), "huge dictionary length");
+        expectIOException(write(corrupt, good, dictionaryStart, -1), "negative dictionary length");
+        expectIOException(write(corrupt, good, 12, Integer.MAX_VALUE), "huge dictionary size");
+        expectIOException(write(corrupt, good, 8, -5), "negative row count");
+        expectIOException(write(corrupt, good, 8, Integer.MAX_VALUE), "huge row count");
+
+        int dictionaryEnd = dictionaryStart;
+        int dictSize = ByteBuffer.wrap(good, 12, 4).order(ByteOrder.LITTLE_ENDIAN).getInt();
+        for (int i = 0; i < dictSize; i++) {
+            dictionaryEnd += 4 + ByteBuffer.wrap(good, dictionaryEnd, 4).order(ByteOrder.LITTLE_ENDIAN).getInt();
+        }
+        int columnsStart = (int) PensionersColumnarWriter.align8(dictionaryEnd);
+        expectIOException(write(corrupt, good, columnsStart + 4 * 3, dictSize), "code id past the dictionary");
+        expectIOException(write(corrupt, good, columnsStart + 4 * 10 + 4, -1), "negative name id");
+        int statusStart = (int) PensionersColumnarWriter.align8(columnsStart + 9 * 4L * rows.size());
+        expectIOException(write(corrupt, good, statusStart, dictSize + 7), "status id past the dictionary");
+
+        int leaked = openFiles() - openFiles;
+        check(openFiles < 0 || leaked <= 0, leaked + " file handles left open by failed opens");
+    }
+
+    private static Path write(Path file, byte[] good, int offset, int value) throws IOException {
+        byte[] copy = good.clone();
+        ByteBuffer.wrap(copy).order(ByteOrder.LITTLE_ENDIAN).putInt(offset, value);
+        Files.write(file, copy);
+        return file;
+    }
+
+    private static void expectIOException(Path file, String what) {
+        try (PensionersColumnarReader reader = new PensionersColumnarReader(file)) {
+            throw new AssertionError(what + ": opened a corrupt snapshot");
+        } catch (IOException expected) {
+            // rejected up front
+        } catch (RuntimeException e) {
+            throw new AssertionError(what + ": " + e, e);
+        }
+    }
+
+    // Open descriptors of this process where /proc exists, else -1.
+    private static int openFiles() {
+        String[] fds = new File("/proc/self/fd").list();
+        return fds == null ? -1 : fds.length;
+    }
+
+    private static PensionerRecord record(String code, String name, String shortName, String status,
+                                          int d1, int d2, int d3, int d4, int d5, int d6) {
+        return new PensionerRecord(code, name, shortName, d1, d2, d3, d4, d5, d6, status);
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new AssertionError(message);
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.nssaap.ingest;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.nssaap.utils.FakeJdbc;
+
+/**
+ * Checks the INSERT path of {@link PensionersIngest} against {@link FakeJdbc}:
+ * validation, the later-line-wins dedupe inside a batch, and resuming from the
+ * checkpoint after a failed batch. There is no test framework in this tree, so run
+ * it directly: java com.nssaap.ingest.PensionersIngestTest
+ */
+public class PensionersIngestTest {
+    private static final String HEADER = "state_code,state_name,state_short_name,a,b,c,d,e,f,state_status";
+
+    public static void main(String[] args) throws Exception {
+        System.setProperty("nssaap.db.url", FakeJdbc.URL);
+        FakeJdbc.reset();
+        Path dir = Files.createTempDirectory("nssaap-ingest");
+        try {
+            rejectsBadLinesAndKeepsTheLastDuplicate(dir.resolve("dedupe.csv"));
+            resumesAfterTheLastCommittedBatch(dir.resolve("resume.csv"));
+        } finally {
+            for (Path p : Files.newDirectoryStream(dir)) {
+                Files.delete(p);
+            }
+            Files.delete(dir);
+        }
+        System.out.println("PensionersIngestTest passed");
+    }
+
+    // The rejected lines are reported on stderr; that output is expected.
+    static void rejectsBadLinesAndKeepsTheLastDuplicate(Path csv) throws Exception {
+        FakeJdbc.reset();
+        write(csv,
+                row("AP", "first"),
+                row("KA", "only"),
+                "TN,Tamil Nadu,TN,2024-01-02",
+                row("AP", "second"),
+                "MH,Maharashtra,MH,2024-13-01,,,,,,A",
+                ",No Code,NC,,,,,,,A");
+        PensionersIngest ingest = new PensionersIngest(100, PensionersIngest.Mode.INSERT);
+        ingest.run(csv);
+        check(ingest.getRowsRead() == 6, "rows read " + ingest.getRowsRead());
+        check(ingest.getRowsRejected() == 3, "rows rejected " + ingest.getRowsRejected());
+        check(ingest.getRowsWritten() == 3, "rows written " + ingest.getRowsWritten());
+        check(FakeJdbc.executions.get() == 1, "one INSERT for the batch, got " + FakeJdbc.executions.get());
+        List<String> sent = states(FakeJdbc.executedParameters.get(0));
+        check(sent.equals(Arrays.asList("KA:only", "AP:second")), "deduped rows " + sent);
+        check(!Files.exists(checkpoint(csv)), "checkpoint removed after a complete run");
+    }
+
+    static void resumesAfterTheLastCommittedBatch(Path csv) throws Exception {
+        FakeJdbc.reset();
+        write(csv, row("AP", "1"), row("KA", "2"), row("KL", "3"), row("MH", "4"), row("TN", "5"));
+        FakeJdbc.failExecute = "08006";
+        FakeJdbc.failFrom = 2;
+        try {
+            new PensionersIngest(2, PensionersIngest.Mode.INSERT).run(csv);
+            throw new AssertionError("the second batch should have failed");
+        } catch (SQLException expected) {
+            // the crash
+        }
+        String checkpoint = new String(Files.readAllBytes(checkpoint(csv)), StandardCharsets.UTF_8).trim();
+        check(checkpoint.equals("3"), "checkpoint after the first batch (lines 2-3), got " + checkpoint);
+
+        FakeJdbc.reset();
+        PensionersIngest rerun = new PensionersIngest(2, PensionersIngest.Mode.INSERT);
+        rerun.run(csv);
+        check(rerun.getRowsRead() == 3, "rerun reads only the uncommitted lines, got " + rerun.getRowsRead());
+        List<String> sent = new ArrayList<>();
+        for (List<Object> parameters : FakeJdbc.executedParameters) {
+            sent.addAll(states(parameters));
+        }
+        check(sent.equals(Arrays.asList("KL:3", "MH:4", "TN:5")), "rerun rows " + sent);
+        check(FakeJdbc.executions.get() == 2, "two batches on the rerun, got " + FakeJdbc.executions.get());
+        check(!Files.exists(checkpoint(csv)), "checkpoint removed after the rerun");
+    }
+
+    private static String row(String stateCode, String name) {
+        return stateCode + "," + name + "," + stateCode + ",2024-01-02,,2024-01-03,,,,A";
+    }
+
+    // "code:name" for each row bound into one multi-row INSERT.
+    private static List<String> states(List<Object> parameters) {
+        List<String> states = new ArrayList<>();
+        for (int i = 0; i + 1 < parameters.size(); i += 10) {
+            states.add(parameters.get(i) + ":" + parameters.get(i + 1));
+        }
+        return states;
+    }
+
+    private static Path checkpoint(Path csv) {
+        return Paths.get(csv.toString() + ".checkpoint");
+    }
+
+    private static void write(Path csv, String... lines) throws IOException {
+        List<String> all = new ArrayList<>();
+        all.add(HEADER);
+        all.addAll(Arrays.asList(lines));
+        Files.write(csv, all, StandardCharsets.UTF_8);
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new AssertionError(message);
+        }
+    }
+}
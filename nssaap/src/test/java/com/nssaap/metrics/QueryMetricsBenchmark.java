@@ -0,0 +1,62 @@
+package com.nssaap.metrics;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import com.nssaap.utils.FakeJdbc;
+
+/**
+ * Measures what {@link InstrumentedJdbc} adds to a prepare/execute/iterate/close
+ * round against an in-memory driver, i.e. the instrumentation alone with no network
+ * or server time to hide it. Run with: java com.nssaap.metrics.QueryMetricsBenchmark [rounds]
+ */
+public class QueryMetricsBenchmark {
+    private static final String SQL = "SELECT state_code, state_name FROM pensioners_transections_last_update_details";
+    private static final int ROWS = 36;
+
+    public static void main(String[] args) throws Exception {
+        int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 200000;
+        FakeJdbc.rows = ROWS;
+        Connection raw = FakeJdbc.connection();
+        Connection instrumented = InstrumentedJdbc.wrap(FakeJdbc.connection());
+
+        long sink = 0;
+        for (int i = 0; i < 5; i++) {
+            sink += run(raw, rounds / 5) + run(instrumented, rounds / 5);
+        }
+        long rawNanos = Long.MAX_VALUE;
+        long instrumentedNanos = Long.MAX_VALUE;
+        for (int i = 0; i < 5; i++) {
+            long start = System.nanoTime();
+            sink += run(raw, rounds);
+            rawNanos = Math.min(rawNanos, System.nanoTime() - start);
+            start = System.nanoTime();
+            sink += run(instrumented, rounds);
+            instrumentedNanos = Math.min(instrumentedNanos, System.nanoTime() - start);
+        }
+
+        double rawPerRound = (double) rawNanos / rounds;
+        double perRound = (double) instrumentedNanos / rounds;
+        System.out.printf("rows per query      %d%n", ROWS);
+        System.out.printf("plain JDBC          %.0f ns/query%n", rawPerRound);
+        System.out.printf("instrumented JDBC   %.0f ns/query%n", perRound);
+        System.out.printf("overhead            %.0f ns/query (%.1f ns/row)%n",
+                perRound - rawPerRound, (perRound - rawPerRound) / ROWS);
+        System.out.printf("statements recorded %d (checksum %d)%n", QueryMetrics.getInstance().getStatements(), sink);
+    }
+
+    private static long run(Connection conn, int rounds) throws SQLException {
+        long seen = 0;
+        for (int i = 0; i < rounds; i++) {
+            try (PreparedStatement ps = conn.prepareStatement(SQL);
+                 ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    seen += rs.getString(1).length();
+                }
+            }
+        }
+        return seen;
+    }
+}
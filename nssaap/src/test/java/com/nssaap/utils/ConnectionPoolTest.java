@@ -0,0 +1,217 @@
+package com.nssaap.utils;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Borrow, return and eviction checks for {@link ConnectionPool} against
+ * {@link FakeJdbc}. There is no test framework in this tree, so run it directly:
+ * java com.nssaap.utils.ConnectionPoolTest
+ */
+public class ConnectionPoolTest {
+    public static void main(String[] args) throws Exception {
+        returnedConnectionIsReused();
+        fullPoolTimesOutAndTryBorrowDoesNotWait();
+        connectionFailureDiscardsTheConnection();
+        otherFailuresKeepTheConnection();
+        warmUpOpensMinSizeAndReportsFailures();
+        idleConnectionsAboveMinSizeAreEvicted();
+        statementProxiesAnswerJdbc4Calls();
+        closedPoolRefusesBorrows();
+        System.out.println("ConnectionPoolTest passed");
+    }
+
+    static void returnedConnectionIsReused() throws SQLException {
+        FakeJdbc.reset();
+        ConnectionPool pool = pool(0, 2, 50, 60000);
+        try {
+            Connection first = pool.borrow();
+            check(pool.getActiveConnections() == 1, "one lease is active");
+            first.close();
+            first.close();
+            check(pool.getActiveConnections() == 0, "double close returns the permit once");
+            check(first.isClosed(), "a returned lease reports closed");
+            try (Connection second = pool.borrow()) {
+                check(FakeJdbc.opened.get() == 1, "second borrow reuses the idle connection");
+            }
+            check(pool.getTotalConnections() == 1 && pool.getIdleConnections() == 1, "connection back on the idle stack");
+            try {
+                first.createStatement();
+                throw new AssertionError("a returned lease must not be usable");
+            } catch (SQLException expected) {
+                check("08003".equals(expected.getSQLState()), "returned lease fails with 08003");
+            }
+        } finally {
+            pool.close();
+        }
+    }
+
+    static void fullPoolTimesOutAndTryBorrowDoesNotWait() throws SQLException {
+        FakeJdbc.reset();
+        ConnectionPool pool = pool(0, 1, 50, 60000);
+        try {
+            Connection held = pool.borrow();
+            check(pool.tryBorrow() == null, "tryBorrow on a full pool returns null");
+            long start = System.nanoTime();
+            try {
+                pool.borrow();
+                throw new AssertionError("borrow on a full pool must time out");
+            } catch (PoolExhaustedException expected) {
+                long waited = (System.nanoTime() - start) / 1000000;
+                check(waited >= 40, "borrow waited for the timeout, only " + waited + " ms");
+            }
+            held.close();
+            try (Connection again = pool.tryBorrow()) {
+                check(again != null, "tryBorrow succeeds once a connection is back");
+            }
+            check(pool.getActiveConnections() == 0, "no permit leaked by the failed borrow");
+        } finally {
+            pool.close();
+        }
+    }
+
+    static void connectionFailureDiscardsTheConnection() throws SQLException {
+        FakeJdbc.reset();
+        ConnectionPool pool = pool(0, 2, 50, 60000);
+        try {
+            try (Connection conn = pool.borrow(); PreparedStatement ps = conn.prepareStatement("select 1")) {
+                FakeJdbc.failExecute = "08006";
+                ps.executeQuery();
+                throw new AssertionError("the query should have failed");
+            } catch (SQLException expected) {
+                check("08006".equals(expected.getSQLState()), "failure reaches the caller unchanged");
+            }
+            check(pool.getTotalConnections() == 0 && pool.getIdleConnections() == 0, "broken connection not pooled");
+            check(FakeJdbc.closed.get() == 1, "broken connection closed");
+            FakeJdbc.failExecute = null;
+            try (Connection conn = pool.borrow()) {
+                check(FakeJdbc.opened.get() == 2, "next borrow opens a fresh connection");
+            }
+        } finally {
+            pool.close();
+        }
+    }
+
+    static void otherFailuresKeepTheConnection() throws SQLException {
+        FakeJdbc.reset();
+        ConnectionPool pool = pool(0, 2, 50, 60000);
+        try {
+            try (Connection conn = pool.borrow(); PreparedStatement ps = conn.prepareStatement("select nope")) {
+                FakeJdbc.failExecute = "42P01";
+                ps.executeQuery();
+                throw new AssertionError("the query should have failed");
+            } catch (SQLException expected) {
+                // an SQL error, not a connection one
+            }
+            check(pool.getTotalConnections() == 1 && pool.getIdleConnections() == 1, "healthy connection kept");
+            check(FakeJdbc.closed.get() == 0, "healthy connection not closed");
+        } finally {
+            pool.close();
+        }
+    }
+
+    static void warmUpOpensMinSizeAndReportsFailures() throws SQLException {
+        FakeJdbc.reset();
+        ConnectionPool pool = pool(3, 5, 50, 60000);
+        try {
+            check(pool.warmUp() == 3, "warmUp opens minSize connections");
+            check(pool.warmUp() == 0, "a warm pool opens nothing");
+            check(pool.getIdleConnections() == 3, "warm connections are idle");
+        } finally {
+            pool.close();
+        }
+        FakeJdbc.reset();
+        FakeJdbc.failConnect = true;
+        pool = pool(2, 5, 50, 60000);
+        try {
+            pool.warmUp();
+            throw new AssertionError("warmUp must throw when it cannot connect");
+        } catch (SQLException expected) {
+            check(pool.getTotalConnections() == 0, "nothing counted for a failed connect");
+            check(pool.getActiveConnections() == 0, "no permit leaked by a failed connect");
+        } finally {
+            pool.close();
+        }
+    }
+
+    static void idleConnectionsAboveMinSizeAreEvicted() throws Exception {
+        FakeJdbc.reset();
+        // The evictor runs every max(1 s, idleTimeout / 2).
+        ConnectionPool pool = pool(1, 4, 50, 10);
+        try {
+            Connection a = pool.borrow();
+            Connection b = pool.borrow();
+            Connection c = pool.borrow();
+            a.close();
+            b.close();
+            c.close();
+            check(pool.getTotalConnections() == 3, "three connections before eviction");
+            long deadline = System.currentTimeMillis() + 5000;
+            while (pool.getTotalConnections() > 1 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(50);
+            }
+            check(pool.getTotalConnections() == 1, "evicted down to minSize, left " + pool.getTotalConnections());
+            check(FakeJdbc.closed.get() == 2, "evicted connections closed");
+        } finally {
+            pool.close();
+        }
+    }
+
+    static void statementProxiesAnswerJdbc4Calls() throws SQLException {
+        FakeJdbc.reset();
+        ConnectionPool pool = pool(0, 1, 50, 60000);
+        try (Connection conn = pool.borrow()) {
+            PreparedStatement ps = conn.prepareStatement("select 1");
+            check(ps.getConnection() == conn, "statement hands back the lease");
+            check(!ps.isClosed(), "open cached statement");
+            ResultSet rs = ps.executeQuery();
+            check(rs.getStatement() == ps, "result set hands back the statement it came from");
+            check(!rs.isClosed(), "open result set");
+            rs.close();
+            check(rs.isClosed(), "closed result set");
+            ps.close();
+            check(ps.isClosed(), "closed cached statement");
+            check(conn.isWrapperFor(Connection.class), "lease wraps a Connection");
+            try {
+                conn.unwrap(String.class);
+                throw new AssertionError("unwrap to an unrelated type must fail");
+            } catch (SQLException expected) {
+                // not a wrapper for String
+            }
+        } finally {
+            pool.close();
+        }
+        check(FakeJdbc.closed.get() == 1, "pool close closes idle connections");
+    }
+
+    static void closedPoolRefusesBorrows() {
+        FakeJdbc.reset();
+        ConnectionPool pool = pool(0, 1, 50, 60000);
+        pool.close();
+        try {
+            pool.borrow();
+            throw new AssertionError("a closed pool must refuse borrow");
+        } catch (SQLException expected) {
+            // closed
+        }
+        try {
+            pool.tryBorrow();
+            throw new AssertionError("a closed pool must refuse tryBorrow");
+        } catch (SQLException expected) {
+            // closed
+        }
+    }
+
+    private static ConnectionPool pool(int min, int max, long borrowTimeoutMillis, long idleTimeoutMillis) {
+        return new ConnectionPool(FakeJdbc.DRIVER, FakeJdbc.URL, "u", "p", min, max,
+                borrowTimeoutMillis, idleTimeoutMillis, 60000, 10);
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new AssertionError(message);
+        }
+    }
+}
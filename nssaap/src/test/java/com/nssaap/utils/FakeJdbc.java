@@ -0,0 +1,216 @@
+package com.nssaap.utils;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.Driver;
+import java.sql.DriverManager;
+import java.sql.DriverPropertyInfo;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+/**
+ * In-memory JDBC driver for the checks under src/test/java; no PostgreSQL needed.
+ * Every query returns {@link #rows} rows whose columns read as "S" + row number.
+ * Like the bundled JDBC 3 PostgreSQL driver, the JDBC 4 methods (unwrap,
+ * Statement.isClosed and so on) throw AbstractMethodError, so code that relies on
+ * them fails here the way it would in production.
+ */
+public final class FakeJdbc implements Driver {
+    public static final String DRIVER = FakeJdbc.class.getName();
+    public static final String URL = "jdbc:nssaap-fake:";
+
+    private static final Set<String> JDBC4_ONLY = new HashSet<>(Arrays.asList(
+            "unwrap", "isWrapperFor", "isValid", "isPoolable", "setPoolable", "closeOnCompletion",
+            "isCloseOnCompletion", "createClob", "createBlob", "getClientInfo", "setClientInfo"));
+
+    public static final AtomicInteger opened = new AtomicInteger();
+    public static final AtomicInteger closed = new AtomicInteger();
+    public static final AtomicInteger executions = new AtomicInteger();
+    /** Parameters bound for each execution, in execution order. */
+    public static final List<List<Object>> executedParameters = new CopyOnWriteArrayList<>();
+    public static volatile int rows = 10;
+    /** SQLState thrown by the next executions, or null to succeed. */
+    public static volatile String failExecute;
+    /** First execution (counting from 1) that failExecute applies to; 0 for all of them. */
+    public static volatile int failFrom;
+    public static volatile boolean failConnect;
+    /** When set, executions wait for it to open, so a check can hold a query in flight. */
+    public static volatile CountDownLatch executeGate;
+
+    static {
+        try {
+            DriverManager.registerDriver(new FakeJdbc());
+        } catch (SQLException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    public static void reset() {
+        opened.set(0);
+        closed.set(0);
+        executions.set(0);
+        executedParameters.clear();
+        rows = 10;
+        failExecute = null;
+        failFrom = 0;
+        failConnect = false;
+        executeGate = null;
+    }
+
+    public static Connection connection() {
+        opened.incrementAndGet();
+        boolean[] isClosed = new boolean[1];
+        Connection[] self = new Connection[1];
+        self[0] = proxy(Connection.class, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "close":
+                    if (!isClosed[0]) {
+                        isClosed[0] = true;
+                        closed.incrementAndGet();
+                    }
+                    return null;
+                case "isClosed":
+                    return isClosed[0];
+                case "getAutoCommit":
+                    return true;
+                case "prepareStatement":
+                case "createStatement":
+                    return statement(self[0]);
+                default:
+                    return fallback(method.getName(), method.getReturnType());
+            }
+        });
+        return self[0];
+    }
+
+    private static PreparedStatement statement(Connection conn) {
+        PreparedStatement[] self = new PreparedStatement[1];
+        List<Object> parameters = new ArrayList<>();
+        self[0] = proxy(PreparedStatement.class, (proxy, method, args) -> {
+            String name = method.getName();
+            if (name.equals("isClosed")) {
+                throw new AbstractMethodError("Statement.isClosed is JDBC 4");
+            }
+            if (name.equals("getConnection")) {
+                return conn;
+            }
+            if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer) {
+                int index = (Integer) args[0];
+                while (parameters.size() < index) {
+                    parameters.add(null);
+                }
+                parameters.set(index - 1, name.equals("setNull") ? null : args[1]);
+                return null;
+            }
+            if (name.equals("clearParameters")) {
+                parameters.clear();
+                return null;
+            }
+            if (name.startsWith("execute")) {
+                int execution = executions.incrementAndGet();
+                executedParameters.add(new ArrayList<>(parameters));
+                CountDownLatch gate = executeGate;
+                if (gate != null) {
+                    gate.await();
+                }
+                String state = failExecute;
+                if (state != null && execution >= failFrom) {
+                    throw new SQLException("fake failure", state);
+                }
+                if (name.equals("executeQuery")) {
+                    return resultSet(self[0]);
+                }
+            }
+            return fallback(name, method.getReturnType());
+        });
+        return self[0];
+    }
+
+    private static ResultSet resultSet(PreparedStatement statement) {
+        int[] row = new int[1];
+        int count = rows;
+        return proxy(ResultSet.class, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "next":
+                    return ++row[0] <= count;
+                case "getString":
+                    return "S" + row[0];
+                case "getInt":
+                    return row[0];
+                case "getStatement":
+                    return statement;
+                case "isClosed":
+                    throw new AbstractMethodError("ResultSet.isClosed is JDBC 4");
+                default:
+                    return fallback(method.getName(), method.getReturnType());
+            }
+        });
+    }
+
+    private static Object fallback(String name, Class<?> returnType) {
+        if (JDBC4_ONLY.contains(name)) {
+            throw new AbstractMethodError(name + " is JDBC 4");
+        }
+        return returnType.isPrimitive() && returnType != void.class ? Array.get(Array.newInstance(returnType, 1), 0) : null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+        return (T) Proxy.newProxyInstance(FakeJdbc.class.getClassLoader(), new Class<?>[] { type }, handler);
+    }
+
+    @Override
+    public Connection connect(String url, Properties info) throws SQLException {
+        if (!acceptsURL(url)) {
+            return null;
+        }
+        if (failConnect) {
+            throw new SQLException("fake connection refused", "08001");
+        }
+        return connection();
+    }
+
+    @Override
+    public boolean acceptsURL(String url) {
+        return url.startsWith(URL);
+    }
+
+    @Override
+    public DriverPropertyInfo[] getPropertyInfo(String url, Properties info) {
+        return new DriverPropertyInfo[0];
+    }
+
+    @Override
+    public int getMajorVersion() {
+        return 1;
+    }
+
+    @Override
+    public int getMinorVersion() {
+        return 0;
+    }
+
+    @Override
+    public boolean jdbcCompliant() {
+        return false;
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        throw new SQLFeatureNotSupportedException();
+    }
+}